@@ -1,6 +1,10 @@
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Paths;
 
 import db.Database;
 
@@ -10,8 +14,12 @@ public class Main {
 
     public static void main(String[] args) throws IOException {
         BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
-        Database db = new Database();
-        System.out.print(PROMPT);
+        // Results are streamed to stdout as they are produced instead of being built up first.
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out));
+        // An optional argument names a write-ahead log that makes changes durable.
+        Database db = args.length > 0 ? new Database(Paths.get(args[0])) : new Database();
+        out.write(PROMPT);
+        out.flush();
 
         String line = "";
         while ((line = in.readLine()) != null) {
@@ -20,14 +28,16 @@ public class Main {
             }
 
             if (!line.trim().isEmpty()) {
-                String result = db.transact(line);
-                if (result.length() > 0) {
-                    System.out.println(result);
+                if (db.transact(line, out)) {
+                    out.write(System.lineSeparator());
                 }
             }
-            System.out.print(PROMPT);
+            out.write(PROMPT);
+            out.flush();
         }
 
         in.close();
+        db.close();
+        out.flush();
     }
 }
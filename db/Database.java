@@ -1,21 +1,50 @@
 package db;
 
+import db.expressions.Parameters;
 import db.literals.Literal;
+import db.table.RCTable.BinaryTableFile;
+import db.table.RCTable.Index;
+import db.table.RCTable.OrderedIndex;
+import db.table.RCTable.Operator;
+import db.table.RCTable.PersistedState;
 import db.table.RCTable.RCTable;
+import db.table.RCTable.Row;
+import db.table.RCTable.TextTableReader;
 import db.table.Table;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.List;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.nio.charset.Charset;
 
 public class Database {
 
     private List<Table> tables;
+    private StatementCache statements;
+    private WriteAheadLog log;
+    private ExecutorService compactor;
+    private int sortBudget = DEFAULT_SORT_BUDGET;
+
+    // A binary table file is compacted in the background once it has more segments than this.
+    private static final int MAX_SEGMENTS = 8;
+
+    // An order by keeps this many rows in memory before it writes a sorted run to disk.
+    private static final int DEFAULT_SORT_BUDGET = 1 << 20;
 
     // Error messages
     private static final String ROW_MISMATCH_ERROR = "ERROR: Row doesn't match the table!";
@@ -24,25 +53,167 @@ public class Database {
     private static final String COLUMN_FORMAT_ERROR = "ERROR: Malformed column definition!";
     private static final String NONEXISTENT_TABLE_ERROR = "ERROR: Nonexistent Table!";
     private static final String DUPLICATE_TABLE_ERROR = "ERROR: Table already exists!";
+    private static final String DUPLICATE_INDEX_ERROR = "ERROR: Index already exists!";
     private static final String FILE_DNE_ERROR = "ERROR: Given file does not exist!";
     private static final String FILE_WRITE_ERROR = "ERROR: There was an error writing the file!";
+    private static final String FILE_READ_ERROR = "ERROR: There was an error reading the file!";
+    private static final String LOG_WRITE_ERROR = "ERROR: There was an error writing the log!";
     private static final String SELECTION_ERROR = "ERROR: Selection Error!";
 
 
     public Database() {
         tables = new ArrayList<>();
+        statements = new StatementCache();
+    }
+
+    /** Creates a database whose changes are written to the write-ahead log at logPath. The
+     *  statements already in the log are run again first, recovering the database as it was
+     *  when the last of them was committed. Loads are logged as statements, so recovery
+     *  reads their files again as they are at that time, and stores are logged as loads of
+     *  the files they wrote. */
+    public Database(Path logPath) throws IOException {
+        this();
+        WriteAheadLog recovered = new WriteAheadLog(logPath);
+        for (WriteAheadLog.Record record : recovered.replay()) {
+            new PreparedStatement(this, record.query(), Parser.parse(record.query())).execute(record.parameters());
+        }
+        log = recovered;
+    }
+
+    /** Sets how many rows an order by sorts in memory before it writes them to a temporary
+     *  file as a sorted run, to be merged with the other runs at the end. */
+    public void setSortBudget(int rows) {
+        sortBudget = rows;
+    }
+
+    /** Returns how many rows an order by sorts in memory at a time. */
+    int sortBudget() {
+        return sortBudget;
+    }
+
+    /** Waits for any compaction in progress and closes the write-ahead log, if there is one. */
+    public void close() throws IOException {
+        if (compactor != null) {
+            compactor.shutdown();
+            try {
+                compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (log != null) {
+            log.close();
+        }
     }
 
+    /** Evaluates query and returns its output. Queries that only differ in their literals
+     *  share a parsed statement, so a repeated query shape is only parsed once. */
     public String transact(String query) {
+        StringWriter out = new StringWriter();
+        try {
+            transact(query, out);
+        } catch (IOException e) {
+            // Writing to a string never fails.
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /** Evaluates query and writes its output to out as it is produced, returning whether there
+     *  was any. The output is the same as transact(query) returns, but a large selected table
+     *  is written a row at a time instead of being built into a single string first. */
+    public boolean transact(String query, Writer out) throws IOException {
+        QueryShape shape = QueryShape.of(query);
+        Statement statement = statements.get(shape.text());
+
+        if (statement == null) {
+            try {
+                statement = Parser.parse(shape.tokens(), query);
+            } catch (RuntimeException e) {
+                statement = null;
+            }
+
+            // Some literals can't be placeholders, such queries are parsed as they are.
+            if (statement == null || statement.parameterCount() != shape.values().length) {
+                return Parser.eval(this, query, out);
+            }
+            statements.put(shape.text(), statement);
+        }
+
+        return new PreparedStatement(this, shape.text(), statement).execute(out, shape.values());
+    }
+
+    /** Runs statement, parsed from query, with parameters bound to its placeholders and writes
+     *  its output to out, returning whether there was any. A statement that changes the tables
+     *  is logged once it succeeds, and only returns once the log is forced to disk. Statements
+     *  run one at a time, but the callers waiting for the log share a single write. Once
+     *  every table is held by its file, the log is checkpointed down to loading them. */
+    boolean execute(String query, Statement statement, String[] parameters, Writer out)
+            throws IOException, RuntimeException {
+        String result;
+        long sequence = -1;
+        synchronized (this) {
+            // The output is written while the statement runs, before any other statement can
+            // change the tables it reads.
+            if (log == null || !statement.changesTables()) {
+                return statement.execute(this, parameters, out);
+            }
+
+            result = statement.execute(this, parameters);
+            try {
+                if (result.isEmpty()) {
+                    sequence = log.append(statement.loggedQuery(query), parameters);
+                    List<WriteAheadLog.Record> checkpoint = checkpoint();
+                    if (checkpoint != null) {
+                        log.checkpoint(checkpoint);
+                    }
+                }
+            } catch (IOException e) {
+                result = LOG_WRITE_ERROR;
+            }
+        }
+
+        if (sequence != -1) {
+            try {
+                log.commit(sequence);
+            } catch (IOException e) {
+                result = LOG_WRITE_ERROR;
+            }
+        }
+        out.write(result);
+        return !result.isEmpty();
+    }
+
+    /** Returns the records that rebuild the database from the files of its tables, or null
+     *  if a table holds rows its file doesn't. Each table is loaded, then its indexes are
+     *  created again. */
+    private List<WriteAheadLog.Record> checkpoint() {
+        List<WriteAheadLog.Record> records = new ArrayList<>();
+        List<WriteAheadLog.Record> indexes = new ArrayList<>();
+        String[] none = new String[0];
+        for (Table table : tables) {
+            PersistedState state = ((RCTable) table).persisted();
+            if (state == null || state.rows() != table.numRows()) {
+                return null;
+            }
+            records.add(new WriteAheadLog.Record("load " + table.name(), none));
+            for (Index index : ((RCTable) table).indexes()) {
+                String create = index instanceof OrderedIndex ? "create ordered index " : "create index ";
+                indexes.add(new WriteAheadLog.Record(
+                        create + index.name() + " on " + table.name() + " (" + index.column() + ")", none));
+            }
+        }
+        records.addAll(indexes);
+        return records;
+    }
 
-        // Parses query
-        // Parser.eval needs to be modified to call the function it finds and
-        // to return the String output that function returns
-        return Parser.eval(this, query);
+    /** Parses query once so it can be executed many times with literals bound to its ? placeholders. */
+    public PreparedStatement prepare(String query) throws RuntimeException {
+        return new PreparedStatement(this, query, Parser.parse(query.trim()));
     }
 
     /** Creates an empty table with the given column names and types. */
-    private Table makeTable(String name, String[] nameTypes) throws RuntimeException {
+    private RCTable makeTable(String name, String[] nameTypes) throws RuntimeException {
         // Get column size
         int columnSize = nameTypes.length;
 
@@ -68,13 +239,23 @@ public class Database {
             types.add(ntArray[1]);
         }
 
+        return makeTable(name, names, types);
+    }
+
+    /** Creates an empty table with the given column names and types. */
+    private RCTable makeTable(String name, List<String> names, List<String> types) throws RuntimeException {
+        // Table must have at least one column
+        if (names.isEmpty()) {
+            throw new RuntimeException(EMPTY_TABLE_ERROR);
+        }
+
         // Check that all types are valid
         if (!Literal.validTypes(types)) {
             throw new RuntimeException(TYPE_ERROR);
         }
 
         // Create table with the given column names and add it to database
-        Table loadedTable = new RCTable(names, types);
+        RCTable loadedTable = new RCTable(names, types);
         loadedTable.setName(name);
         return loadedTable;
     }
@@ -91,41 +272,71 @@ public class Database {
         return addTable(loadedTable);
     }
 
-    /** Adds a table with the given name to this database. */
+    /** Creates an empty table with the given column names and types. */
+    public String createTable(String name, List<String> names, List<String> types) {
+        Table loadedTable;
+        try {
+            loadedTable = makeTable(name, names, types);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
+
+        return addTable(loadedTable);
+    }
+
+    /** Adds a copy of the table with the given name to this database. Selected tables can
+     *  share column storage with the tables they came from, so the copy keeps them apart. */
     public String createTable(String name, Table table) {
-        table.setName(name);
-        return addTable(table);
+        Table copy = table.clone();
+        copy.setName(name);
+        return addTable(copy);
     }
 
-    /** Loads the file <tableName>.tbl and stores it in the database. */
+    /** Loads the file <tableName>.tbl and stores it in the database. The file is streamed
+     *  straight into the columns of a new table, which replaces any table of the same name
+     *  only once every row has been read. A malformed row leaves the database unchanged.
+     *  Files written by storeBinary are recognized and read back in bulk. */
     public String load(String tableName) {
-        // Loads file into an array of lines and fails if it cannot find the file
-        List<String> lines;
+        Path path = Paths.get(tableName + ".tbl");
+        boolean binary;
         try {
-            lines = Files.readAllLines(Paths.get(tableName + ".tbl"), Charset.defaultCharset());
+            binary = BinaryTableFile.isBinary(path);
         } catch (IOException e) {
             return FILE_DNE_ERROR;
         }
 
-        // Attempts to create a table from the data, and returns error message if malformed
-        String[] nameTypes = lines.remove(0).split("\\s*,\\s*");
-        try {
-            Table loadedTable = makeTable(tableName, nameTypes);
-            forceAddTable(loadedTable);
-        } catch (RuntimeException e) {
-            return e.getMessage();
+        if (binary) {
+            RCTable loadedTable;
+            try {
+                loadedTable = BinaryTableFile.read(path);
+            } catch (IOException e) {
+                return FILE_READ_ERROR;
+            }
+            loadedTable.setName(tableName);
+            return forceAddTable(loadedTable);
         }
 
-        // Load all remaining rows to the table
-        for (int i = 0; i < lines.size(); i++) {
-            String[] rowStrings = lines.get(i).trim().split("\\s*,\\s*");
-            String insertStatus = insert(tableName, rowStrings);
+        // Maps the file and fails if it cannot find the file
+        try (TextTableReader reader = new TextTableReader(path)) {
+            // Attempts to create a table from the header, and returns error message if malformed
+            RCTable loadedTable;
+            try {
+                loadedTable = makeTable(tableName, reader.readHeader().split("\\s*,\\s*"));
+            } catch (RuntimeException e) {
+                return e.getMessage();
+            }
 
-            // Row insertion failed
-            if (!insertStatus.equals("")) {
-                drop(tableName);
-                return insertStatus;
+            // Load all remaining rows to the table
+            try {
+                reader.readRows(loadedTable);
+            } catch (IOException e) {
+                return ROW_MISMATCH_ERROR;
             }
+
+            loadedTable.setPersisted(new PersistedState(loadedTable.numRows(), Files.size(path), false, 1));
+            forceAddTable(loadedTable);
+        } catch (IOException e) {
+            return FILE_DNE_ERROR;
         }
 
         return "";
@@ -133,20 +344,177 @@ public class Database {
 
     /** Looks up the table in the database and writes it to disk. */
     public String store(String tableName) {
+        return store(tableName, false);
+    }
+
+    /** Looks up the table in the database and writes it to disk in the binary columnar format. */
+    public String storeBinary(String tableName) {
+        return store(tableName, true);
+    }
+
+    /** Writes the table to disk in the text or binary format. If the file still holds what the
+     *  table was last loaded from or stored to, in the same format, only the rows added since
+     *  are appended: as lines of text, or as a new segment of the binary file. Otherwise the
+     *  whole table is written. Binary files with too many segments are compacted in the
+     *  background. */
+    private synchronized String store(String tableName, boolean binary) {
         // Retrieves the table from the database
-        Table table = getTable(tableName);
+        RCTable table = (RCTable) getTable(tableName);
         if (table == null) {
             return NONEXISTENT_TABLE_ERROR;
         }
 
-        // Formats the table as a string and writes it to disk
-        List<String> lines = Arrays.asList(table.toString().split("\\n"));
+        Path path = Paths.get(tableName + ".tbl");
         try {
-            Files.write(Paths.get(tableName + ".tbl"), lines, Charset.defaultCharset());
+            PersistedState state = table.persisted();
+            int segments = 1;
+            if (canAppend(state, path, binary, table)) {
+                segments = state.segments();
+                if (state.rows() < table.numRows()) {
+                    appendRows(table, state.rows(), path, binary);
+                    if (binary) {
+                        segments++;
+                    }
+                }
+            } else if (binary) {
+                BinaryTableFile.write(table, path);
+            } else {
+                // Writes the table to disk a row at a time
+                try (Writer out = Files.newBufferedWriter(path, Charset.defaultCharset())) {
+                    table.write(out);
+                    out.write("\n");
+                }
+            }
+            table.setPersisted(new PersistedState(table.numRows(), Files.size(path), binary, segments));
         } catch (IOException e) {
+            // The file no longer matches what was recorded, so the next store rewrites it.
+            table.setPersisted(null);
             return FILE_WRITE_ERROR;
         }
 
+        if (segments(table) > MAX_SEGMENTS) {
+            compact(tableName);
+        }
+        return "";
+    }
+
+    /** Returns how many segments the file of table was last known to have. */
+    private static int segments(RCTable table) {
+        return table.persisted() == null ? 0 : table.persisted().segments();
+    }
+
+    /** Returns whether the rows added to table since state was recorded can be appended to
+     *  the file at path in the given format. */
+    private static boolean canAppend(PersistedState state, Path path, boolean binary, RCTable table)
+            throws IOException {
+        if (state == null || state.binary() != binary || state.rows() > table.numRows()
+                || !Files.exists(path) || Files.size(path) != state.fileSize()) {
+            return false;
+        }
+
+        // Lines can only be appended to a text file that ends with a line break.
+        return binary || endsWithLineBreak(path);
+    }
+
+    /** Returns whether the file at path ends with a line break. */
+    private static boolean endsWithLineBreak(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() == 0) {
+                return false;
+            }
+            ByteBuffer last = ByteBuffer.allocate(1);
+            channel.read(last, channel.size() - 1);
+            return last.get(0) == '\n';
+        }
+    }
+
+    /** Appends the rows of table from position from onwards to the file at path. */
+    private static void appendRows(RCTable table, int from, Path path, boolean binary) throws IOException {
+        if (binary) {
+            BinaryTableFile.append(table, from, path);
+            return;
+        }
+
+        try (Writer out = Files.newBufferedWriter(path, Charset.defaultCharset(), StandardOpenOption.APPEND)) {
+            for (Row row : table.rows().subList(from, table.numRows())) {
+                row.write(out);
+                out.write("\n");
+            }
+        }
+    }
+
+    /** Merges the segments of the binary file of the table called tableName into one, off the
+     *  calling thread. Statements keep running meanwhile: the merged file is written to the
+     *  side and only replaces the original if nothing was stored to it in the meantime. */
+    private void compact(String tableName) {
+        if (compactor == null) {
+            compactor = Executors.newSingleThreadExecutor(task -> {
+                Thread thread = new Thread(task, "compactor");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        compactor.execute(() -> compactNow(tableName));
+    }
+
+    /** Merges the segments of the binary file of the table called tableName into one. */
+    private void compactNow(String tableName) {
+        Path path = Paths.get(tableName + ".tbl");
+        PersistedState state;
+        synchronized (this) {
+            Table table = getTable(tableName);
+            state = table == null ? null : ((RCTable) table).persisted();
+            if (state == null || !state.binary() || state.segments() <= 1) {
+                return;
+            }
+        }
+
+        Path merged = path.resolveSibling(path.getFileName() + ".compact");
+        try {
+            BinaryTableFile.write(BinaryTableFile.read(path), merged);
+            synchronized (this) {
+                // Every store records a new state, so an unchanged state means an unchanged file.
+                RCTable table = (RCTable) getTable(tableName);
+                if (table != null && table.persisted() == state && Files.size(path) == state.fileSize()) {
+                    Files.move(merged, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                    table.setPersisted(new PersistedState(state.rows(), Files.size(path), true, 1));
+                }
+            }
+        } catch (IOException e) {
+            // The segmented file is still complete, so it is simply left as it is.
+        } finally {
+            try {
+                Files.deleteIfExists(merged);
+            } catch (IOException e) {
+                // Nothing is left to clean up.
+            }
+        }
+    }
+
+    /** Builds an index called name over column of the table called tableName. Conditions
+     *  comparing the column with a literal use the index instead of scanning the table: a
+     *  hash index answers equalities and joins on the column, an ordered index also answers
+     *  ranges. */
+    public String createIndex(String name, String tableName, String column, boolean ordered) {
+        Table table = getTable(tableName);
+        if (table == null) {
+            return NONEXISTENT_TABLE_ERROR;
+        }
+
+        // Index names are shared by every table in the database.
+        for (Table t : tables) {
+            for (Index index : ((RCTable) t).indexes()) {
+                if (index.name().equals(name)) {
+                    return DUPLICATE_INDEX_ERROR;
+                }
+            }
+        }
+
+        try {
+            ((RCTable) table).createIndex(name, column, ordered);
+        } catch (RuntimeException e) {
+            return e.getMessage();
+        }
         return "";
     }
 
@@ -195,8 +563,22 @@ public class Database {
         return table.toString();
     }
 
+    /** Writes the table with the given name to out a row at a time, returning whether there
+     *  was any output. */
+    boolean print(String tableName, Writer out) throws IOException {
+        // Retrieves the table from the database
+        Table table = getTable(tableName);
+        if (table == null) {
+            out.write(NONEXISTENT_TABLE_ERROR);
+            return true;
+        }
+
+        table.write(out);
+        return table.numColumns() > 0;
+    }
+
     /** Returns a list of tables from this database from a list of names. */
-    private List<Table> tablesForNames(List<String> names) {
+    List<Table> tablesForNames(List<String> names) {
         List<Table> tbls = new ArrayList<>();
         for (String n : names) {
             Table x = getTable(n);
@@ -213,60 +595,37 @@ public class Database {
 
     /** Evaluates a select query and returns a table. */
     public Table select(List<String> colExpr, List<String> tblNames) throws RuntimeException {
-
-        // Returns a null table if there are no columns to select. (We can't have an empty table)
-        if (colExpr.isEmpty()) {
-            return null;
-        }
-
-        // Return a null table if not all table names are valid.
-        List<Table> tbls = tablesForNames(tblNames);
-        if (tbls == null || tblNames.isEmpty()) {
-            return null;
-        }
-
-        // Join the tables and use that to select.
-        Table joinedTable = tbls.remove(0).join(tbls);
-
-        // If *, we want to return all columns
-        if (colExpr.get(0).equals("*")) {
-            return joinedTable;
-        }
-
-        // Return a new table.
-        return new RCTable(joinedTable, colExpr);
+        return select(colExpr, tblNames, new ArrayList<>());
     }
 
-    /** Evaluates a select query, filters it, and returns a table. */
+    /** Evaluates a select query, filters it, and returns a table. Each condition is
+     *  applied as early as its columns allow, see SelectPlan. */
     public Table select(List<String> colExpr,
                             List<String> tableNames,
                             List<String> conditions) throws RuntimeException {
 
-        // Select from the table.
-        Table filtered = select(colExpr, tableNames);
-        if (filtered == null) {
+        // Returns a null table if there are no columns to select. (We can't have an empty table)
+        if (colExpr.isEmpty()) {
             return null;
         }
 
-        for (String cond : conditions) {
-            filtered = filtered.filterTableByCondition(cond);
-        }
-
-        return filtered;
+        return SelectStatement.parse(colExpr, tableNames, conditions).select(this, Parameters.NONE);
     }
 
     /** Evaluates a select query, filters it, and returns a string representation of the table. */
     public String select(String[] columnExpressions, String[] tableNames, String[] conditions) {
-        Table selected;
         List<String> listCols = Arrays.asList(columnExpressions);
         List<String> listTables = Arrays.asList(tableNames);
+        List<String> listConditions = Arrays.asList(conditions);
+        return select(SelectStatement.parse(listCols, listTables, listConditions), Parameters.NONE);
+    }
 
+    /** Runs a parsed select with parameters bound to its placeholders and returns a string
+     *  representation of the table. */
+    String select(SelectStatement statement, String[] parameters) {
+        Table selected;
         try {
-            if (conditions.length == 0) {
-                selected = select(listCols, listTables);
-            } else {
-                selected = select(listCols, listTables, Arrays.asList(conditions));
-            }
+            selected = statement.select(this, parameters);
         } catch (RuntimeException e) {
             return e.getMessage();
         }
@@ -278,6 +637,22 @@ public class Database {
         return selected.toString();
     }
 
+    /** Runs a parsed select with parameters bound to its placeholders and writes the selected
+     *  rows to out as the pipeline produces them, returning whether there was any output. */
+    boolean select(SelectStatement statement, String[] parameters, Writer out) throws IOException {
+        try {
+            Operator selected = statement.open(this, parameters);
+            if (selected == null) {
+                out.write(SELECTION_ERROR);
+                return true;
+            }
+            selected.write(out);
+        } catch (RuntimeException e) {
+            out.write(e.getMessage());
+        }
+        return true;
+    }
+
     /** Returns the table from this database or null if it doesn't exist. */
     private Table getTable(String tableName) {
         for (Table t : tables) {
@@ -297,9 +672,16 @@ public class Database {
         return DUPLICATE_TABLE_ERROR;
     }
 
-    /** Adds the table to the database forcefully, overwriting if necessary. */
+    /** Adds the table to the database forcefully, overwriting if necessary. The indexes of
+     *  the table it replaces are built again over the new one. */
     private String forceAddTable(Table tbl) {
-        if (getTable(tbl.name()) != null) {
+        Table replaced = getTable(tbl.name());
+        if (replaced != null) {
+            for (Index index : ((RCTable) replaced).indexes()) {
+                if (tbl.hasColumn(index.column())) {
+                    ((RCTable) tbl).createIndex(index.name(), index.column(), index instanceof OrderedIndex);
+                }
+            }
             drop(tbl.name());
         }
         tables.add(tbl);
@@ -0,0 +1,49 @@
+package db;
+
+import db.expressions.Parameters;
+
+/**
+ * A parsed insert. Values that are ? placeholders are filled in when the
+ * statement is executed.
+ */
+class InsertStatement implements Statement {
+    private String tableName;
+    private String[] values;
+    private int[] parameters;
+    private int parameterCount;
+
+    InsertStatement(String tableName, String[] values) {
+        this.tableName = tableName;
+        this.values = values;
+
+        // Number the placeholders in the order they appear.
+        parameters = new int[values.length];
+        for (int i = 0; i < values.length; i++) {
+            parameters[i] = Parameters.isPlaceholder(values[i]) ? parameterCount++ : -1;
+        }
+    }
+
+    @Override
+    public String execute(Database db, String[] parameterValues) throws RuntimeException {
+        String[] row = values;
+        if (parameterCount > 0) {
+            row = values.clone();
+            for (int i = 0; i < row.length; i++) {
+                if (parameters[i] != -1) {
+                    row[i] = Parameters.bind(parameterValues, parameters[i]);
+                }
+            }
+        }
+        return db.insert(tableName, row);
+    }
+
+    @Override
+    public int parameterCount() {
+        return parameterCount;
+    }
+
+    @Override
+    public boolean changesTables() {
+        return true;
+    }
+}
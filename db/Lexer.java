@@ -0,0 +1,103 @@
+package db;
+
+import db.expressions.Parameters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a query into tokens in a single pass. Names and keywords are words,
+ * string literals keep their quotes and may contain any character but a quote,
+ * and a '-' directly in front of a number is its sign unless it follows a value.
+ */
+class Lexer {
+    private static final String COMPARISON_START = "<>=!";
+
+    /** Returns whether c can be part of a word or a number. */
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '.';
+    }
+
+    /** Returns whether c can start a number. */
+    private static boolean startsNumber(String query, int index) {
+        if (index >= query.length()) {
+            return false;
+        }
+        char c = query.charAt(index);
+        return Character.isDigit(c)
+                || (c == '.' && index + 1 < query.length() && Character.isDigit(query.charAt(index + 1)));
+    }
+
+    /** Returns whether word is an unsigned int or float literal. */
+    private static boolean isNumber(String word) {
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (Character.isDigit(c)) {
+                digits++;
+            } else if (c == '.') {
+                dots++;
+            } else {
+                return false;
+            }
+        }
+        return digits > 0 && dots <= 1;
+    }
+
+    /** Returns the tokens of query, ending with an END token. */
+    static List<Token> tokenize(String query) {
+        List<Token> tokens = new ArrayList<>();
+        int length = query.length();
+
+        int i = 0;
+        while (i < length) {
+            char c = query.charAt(i);
+            int start = i;
+
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            if (c == '\'') {
+                int end = query.indexOf('\'', i + 1);
+
+                // An unterminated string can't be parsed, the rest of the query becomes one bad symbol.
+                if (end == -1) {
+                    tokens.add(new Token(Token.Kind.SYMBOL, query.substring(i), start));
+                    break;
+                }
+                tokens.add(new Token(Token.Kind.STRING, query.substring(i, end + 1), start));
+                i = end + 1;
+            } else if (isWordChar(c) || (c == '-' && startsNumber(query, i + 1)
+                    && (tokens.isEmpty() || !tokens.get(tokens.size() - 1).isOperand()))) {
+                i++;
+                while (i < length && isWordChar(query.charAt(i))) {
+                    i++;
+                }
+
+                String word = query.substring(start, i);
+                String unsigned = c == '-' ? word.substring(1) : word;
+                Token.Kind kind = isNumber(unsigned) ? Token.Kind.NUMBER : Token.Kind.WORD;
+                tokens.add(new Token(kind, word, start));
+            } else if (Parameters.isPlaceholder(String.valueOf(c))) {
+                tokens.add(new Token(Token.Kind.PARAMETER, Parameters.PLACEHOLDER, start));
+                i++;
+            } else if (COMPARISON_START.indexOf(c) != -1) {
+                // Comparisons are one of these characters, optionally followed by '='.
+                i++;
+                if (i < length && query.charAt(i) == '=') {
+                    i++;
+                }
+                tokens.add(new Token(Token.Kind.SYMBOL, query.substring(start, i), start));
+            } else {
+                tokens.add(new Token(Token.Kind.SYMBOL, String.valueOf(c), start));
+                i++;
+            }
+        }
+
+        tokens.add(new Token(Token.Kind.END, "", length));
+        return tokens;
+    }
+}
@@ -1,14 +1,23 @@
 package db;
 
+import db.expressions.ColumnExpression;
+import db.expressions.Condition;
+import db.expressions.Parameters;
 import db.table.Table;
 
+import java.io.IOException;
+import java.io.Writer;
+
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Created by admohanraj on 2/19/17.
- * Heavily based on the Parse class provided.
+ * A recursive descent parser over the tokens of a query. Every command is parsed in a single
+ * pass into a Statement, with its column expressions and conditions already parsed.
  */
 public class Parser {
 
@@ -16,170 +25,447 @@ public class Parser {
     private static final String BAD_QUERY = "ERROR: Malformed query: %s\n";
     private static final String BAD_INSERT = "ERROR: Malformed insert: %s\n";
     private static final String BAD_SELECT = "ERROR: Malformed select: %s\n";
+    private static final String BAD_EXPRESSION = "ERROR: Column expression is not valid.";
+    private static final String BAD_CONDITION = "ERROR: Malformed conditional expression!";
+
+    // Operator symbols, arithmetic operators are only checked once the expression is bound.
+    private static final Set<String> COMPARISONS = new HashSet<>(Arrays.asList("==", "!=", "<", "<=", ">", ">="));
+    private static final Set<String> OPERATORS = new HashSet<>(Arrays.asList("+", "-", "*", "/", "=", "!"));
+    private static final Set<String> AGGREGATES = new HashSet<>(Arrays.asList("count", "sum", "min", "max", "avg"));
+
+    static {
+        OPERATORS.addAll(COMPARISONS);
+    }
 
+    private List<Token> tokens;
+    private String query;
+    private int position;
 
-    // Various common constructs, simplifies parsing.
-    private static final String REST  = "\\s*(.*)\\s*",
-            COMMA = "\\s*,\\s*",
-            AND   = "\\s+and\\s+";
-
-    // Stage 1 syntax, contains the command name.
-    private static final Pattern CREATE_CMD = Pattern.compile("create table " + REST),
-            LOAD_CMD   = Pattern.compile("load " + REST),
-            STORE_CMD  = Pattern.compile("store " + REST),
-            DROP_CMD   = Pattern.compile("drop table " + REST),
-            INSERT_CMD = Pattern.compile("insert into " + REST),
-            PRINT_CMD  = Pattern.compile("print " + REST),
-            SELECT_CMD = Pattern.compile("select " + REST);
-
-    // Stage 2 syntax, contains the clauses of commands.
-    private static final Pattern CREATE_NEW  = Pattern.compile("(\\S+)\\s+\\((\\S+\\s+\\S+\\s*" +
-            "(?:,\\s*\\S+\\s+\\S+\\s*)*)\\)"),
-            SELECT_CLS  = Pattern.compile("([^,]+?(?:,[^,]+?)*)\\s+from\\s+" +
-                    "(\\S+\\s*(?:,\\s*\\S+\\s*)*)(?:\\s+where\\s+" +
-                    "([\\w\\s+\\-*/'<>=!]+?(?:\\s+and\\s+" +
-                    "[\\w\\s+\\-*/'<>=!]+?)*))?"),
-            CREATE_SEL  = Pattern.compile("(\\S+)\\s+as select\\s+" +
-                    SELECT_CLS.pattern()),
-            INSERT_CLS  = Pattern.compile("(\\S+)\\s+values\\s+(.+?" +
-                    "\\s*(?:,\\s*.+?\\s*)*)");
+    private Parser(List<Token> tokens, String query) {
+        this.tokens = tokens;
+        this.query = query;
+    }
 
     /** Evaluates the given query string against the given Database instance. */
     public static String eval(Database db, String query) {
-        Matcher m;
-        if ((m = CREATE_CMD.matcher(query)).matches()) {
-            return createTable(db, m.group(1));
-        } else if ((m = LOAD_CMD.matcher(query)).matches()) {
-            return loadTable(db, m.group(1));
-        } else if ((m = STORE_CMD.matcher(query)).matches()) {
-            return storeTable(db, m.group(1));
-        } else if ((m = DROP_CMD.matcher(query)).matches()) {
-            return dropTable(db, m.group(1));
-        } else if ((m = INSERT_CMD.matcher(query)).matches()) {
-            return insertRow(db, m.group(1));
-        } else if ((m = PRINT_CMD.matcher(query)).matches()) {
-            return printTable(db, m.group(1));
-        } else if ((m = SELECT_CMD.matcher(query)).matches()) {
-            return select(db, m.group(1));
+        Statement statement;
+        try {
+            statement = parse(query);
+        } catch (RuntimeException e) {
+            return e.getMessage();
         }
-        return String.format(BAD_QUERY, query);
+        return new PreparedStatement(db, query, statement).execute(Parameters.NONE);
     }
 
-    private static String createTable(Database db, String expr) {
-        Matcher m;
-        if ((m = CREATE_NEW.matcher(expr)).matches()) {
-            return createNewTable(db, m.group(1), m.group(2).split(COMMA));
-        } else if ((m = CREATE_SEL.matcher(expr)).matches()) {
-            return createSelectedTable(db, m.group(1), m.group(2), m.group(3), m.group(4));
-        } else {
-            return String.format(BAD_CREATE, expr);
+    /** Evaluates the given query string against db and writes its output to out, returning
+     *  whether there was any. */
+    public static boolean eval(Database db, String query, Writer out) throws IOException {
+        Statement statement;
+        try {
+            statement = parse(query);
+        } catch (RuntimeException e) {
+            out.write(e.getMessage());
+            return true;
         }
+        return new PreparedStatement(db, query, statement).execute(out, Parameters.NONE);
     }
 
-    private static String createNewTable(Database db, String name, String[] cols) {
-        // Debug code start
-        /*StringJoiner joiner = new StringJoiner(", ");
-        for (int i = 0; i < cols.length-1; i++) {
-            joiner.add(cols[i]);
-        }
-        String colSentence = joiner.toString() + " and " + cols[cols.length-1];
+    /** Parses the given query string into a statement that can be executed many times.
+     *  Literals may be left out of selects and inserts as ? placeholders. */
+    public static Statement parse(String query) throws RuntimeException {
+        return parse(Lexer.tokenize(query), query);
+    }
+
+    /** Parses the tokens of query into a statement. */
+    static Statement parse(List<Token> tokens, String query) throws RuntimeException {
+        return new Parser(tokens, query).statement();
+    }
 
-        System.out.printf("You are trying to create a table named %s with the columns %s\n", name, colSentence);*/
-        // Debug code end
+    /** Returns the current token without consuming it. */
+    private Token peek() {
+        return tokens.get(position);
+    }
 
-        return db.createTable(name, cols);
+    /** Consumes and returns the current token. The END token is never consumed. */
+    private Token next() {
+        Token token = tokens.get(position);
+        if (token.kind() != Token.Kind.END) {
+            position++;
+        }
+        return token;
     }
 
-    private static String createSelectedTable(Database db, String name, String exprs, String tables, String conds) {
+    /** Consumes the current token if it is the word or symbol text. */
+    private boolean accept(String text) {
+        if (peek().is(text)) {
+            position++;
+            return true;
+        }
+        return false;
+    }
 
-        // Debug code start
-        // System.out.printf("You are trying to create a table named %s by selecting these expressions:" +
-        //         " '%s' from the join of these tables: '%s', filtered by these conditions: '%s'\n", name, exprs, tables, conds);
-        // Debug code end
+    /** Returns whether every token has been consumed. */
+    private boolean atEnd() {
+        return peek().kind() == Token.Kind.END;
+    }
 
-        String[] exprArr = exprs.split("\\s*,\\s*");
-        String[] tableNameArr = tables.split("\\s*,\\s*");
-        Table selected;
+    /** Returns an error formatted with the query from token start onwards. */
+    private RuntimeException malformed(String error, Token start) {
+        return new RuntimeException(String.format(error, query.substring(start.start())));
+    }
 
-        if (conds == null) {
-            selected = db.select(Arrays.asList(exprArr), Arrays.asList(tableNameArr));
-        } else {
-            selected = db.select(Arrays.asList(exprArr), Arrays.asList(tableNameArr), Arrays.asList(conds.split("\\s*and\\s*")));
+    /** Consumes a name, failing with error if the current token isn't a word. */
+    private String word(String error, Token start) throws RuntimeException {
+        Token token = next();
+        if (token.kind() != Token.Kind.WORD) {
+            throw malformed(error, start);
         }
+        return token.text();
+    }
 
-        // Selection failed
-        if (selected == null) {
-            return "ERROR: Selection failed, and table cannot be created!";
+    /** Returns whether token is a column name, a literal or a placeholder. */
+    private static boolean isOperand(Token token) {
+        return token.kind() == Token.Kind.WORD || token.kind() == Token.Kind.PARAMETER || token.isLiteral();
+    }
+
+    private Statement statement() throws RuntimeException {
+        Token first = peek();
+        if (accept("create")) {
+            if (accept("table")) {
+                return createTable();
+            } else if (accept("index")) {
+                return createIndex(false);
+            } else if (accept("ordered") && accept("index")) {
+                return createIndex(true);
+            }
+        } else if (accept("load")) {
+            String name = tableName(first);
+            return changesTables((db, parameters) -> db.load(name));
+        } else if (accept("store")) {
+            return storeTable(first);
+        } else if (accept("drop") && accept("table")) {
+            String name = tableName(first);
+            return changesTables((db, parameters) -> db.drop(name));
+        } else if (accept("insert") && accept("into")) {
+            return insertRow();
+        } else if (accept("print")) {
+            String name = tableName(first);
+            return printTable(name);
+        } else if (accept("select")) {
+            return select(BAD_SELECT, peek());
         }
+        throw malformed(BAD_QUERY, first);
+    }
+
+    /** Returns a statement that prints the table called name. */
+    private static Statement printTable(String name) {
+        return new Statement() {
+            @Override
+            public String execute(Database db, String[] parameters) {
+                return db.print(name);
+            }
+
+            @Override
+            public boolean execute(Database db, String[] parameters, Writer out) throws IOException {
+                return db.print(name, out);
+            }
+        };
+    }
+
+    /** Returns statement marked as one that changes the tables of the database. */
+    private static Statement changesTables(Statement statement) {
+        return new Statement() {
+            @Override
+            public String execute(Database db, String[] parameters) {
+                return statement.execute(db, parameters);
+            }
+
+            @Override
+            public boolean changesTables() {
+                return true;
+            }
+        };
+    }
 
-        return db.createTable(name, selected);
+    /** Parses the table name that ends a load, store, drop or print. */
+    private String tableName(Token first) throws RuntimeException {
+        String name = word(BAD_QUERY, first);
+        if (!atEnd()) {
+            throw malformed(BAD_QUERY, first);
+        }
+        return name;
     }
 
-    private static String loadTable(Database db, String name) {
-        // Debug code start
-        // System.out.printf("You are trying to load the table \"%s\"\n", name);
-        // Debug code end
+    /** Parses store <table> [as binary]. */
+    private Statement storeTable(Token first) throws RuntimeException {
+        String name = word(BAD_QUERY, first);
+        if (accept("as")) {
+            if (!accept("binary") || !atEnd()) {
+                throw malformed(BAD_QUERY, first);
+            }
+            return storesTable(name, (db, parameters) -> db.storeBinary(name));
+        }
 
-        return db.load(name);
+        if (!atEnd()) {
+            throw malformed(BAD_QUERY, first);
+        }
+        return storesTable(name, (db, parameters) -> db.store(name));
     }
 
-    private static String storeTable(Database db, String name) {
-        return db.store(name);
+    /** Returns statement, which stores the table called name, marked as one that changes
+     *  the tables. It is logged as a load of the table: a file written by a store holds the
+     *  table as it was then, and the inserts before it are already among its rows, so
+     *  reading the file again keeps recovery from adding them twice. */
+    private static Statement storesTable(String name, Statement statement) {
+        return new Statement() {
+            @Override
+            public String execute(Database db, String[] parameters) {
+                return statement.execute(db, parameters);
+            }
+
+            @Override
+            public boolean changesTables() {
+                return true;
+            }
+
+            @Override
+            public String loggedQuery(String query) {
+                return "load " + name;
+            }
+        };
     }
 
-    private static String dropTable(Database db, String name) {
-        // Debug code start
-        // System.out.printf("You are trying to drop the table \"%s\"\n", name);
-        // Debug code end
+    private Statement createTable() throws RuntimeException {
+        Token start = peek();
+        String name = word(BAD_CREATE, start);
 
-        return db.drop(name);
+        if (accept("(")) {
+            return createNewTable(name, start);
+        } else if (accept("as") && accept("select")) {
+            return createSelectedTable(name, select(BAD_CREATE, start));
+        }
+        throw malformed(BAD_CREATE, start);
     }
 
-    private static String insertRow(Database db, String expr) {
-        Matcher m = INSERT_CLS.matcher(expr);
-        if (!m.matches()) {
-            return String.format(BAD_INSERT, expr);
+    /** Parses create [ordered] index <name> on <table> (<column>). */
+    private Statement createIndex(boolean ordered) throws RuntimeException {
+        Token start = peek();
+        String name = word(BAD_CREATE, start);
+        if (!accept("on")) {
+            throw malformed(BAD_CREATE, start);
+        }
+        String table = word(BAD_CREATE, start);
+        if (!accept("(")) {
+            throw malformed(BAD_CREATE, start);
         }
+        String column = word(BAD_CREATE, start);
+        if (!accept(")") || !atEnd()) {
+            throw malformed(BAD_CREATE, start);
+        }
+        return changesTables((db, parameters) -> db.createIndex(name, table, column, ordered));
+    }
 
-        // Debug code start
-        // System.out.printf("You are trying to insert the row \"%s\" into the table %s\n", m.group(2), m.group(1));
-        // Debug code end
+    private Statement createNewTable(String name, Token start) throws RuntimeException {
+        List<String> names = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        do {
+            names.add(word(BAD_CREATE, start));
+            types.add(word(BAD_CREATE, start));
+        } while (accept(","));
 
-        String name = m.group(1);
-        String row = m.group(2);
-        String[] rowValues = row.trim().split("\\s*,\\s*");
-        return db.insert(name, rowValues);
+        if (!accept(")") || !atEnd()) {
+            throw malformed(BAD_CREATE, start);
+        }
+        return changesTables((db, parameters) -> db.createTable(name, names, types));
     }
 
-    private static String printTable(Database db, String name) {
-        return db.print(name);
+    private static Statement createSelectedTable(String name, SelectStatement select) {
+        return new Statement() {
+            @Override
+            public String execute(Database db, String[] parameters) {
+                Table selected = select.select(db, parameters);
+
+                // Selection failed
+                if (selected == null) {
+                    return "ERROR: Selection failed, and table cannot be created!";
+                }
+
+                return db.createTable(name, selected);
+            }
+
+            @Override
+            public int parameterCount() {
+                return select.parameterCount();
+            }
+
+            @Override
+            public boolean changesTables() {
+                return true;
+            }
+        };
     }
 
-    private static String select(Database db, String expr) {
-        Matcher m = SELECT_CLS.matcher(expr);
-        if (!m.matches()) {
-            return String.format(BAD_SELECT, expr);
+    private Statement insertRow() throws RuntimeException {
+        Token start = peek();
+        String name = word(BAD_INSERT, start);
+        if (!accept("values")) {
+            throw malformed(BAD_INSERT, start);
         }
 
-        return select(db, m.group(1), m.group(2), m.group(3));
+        // Values are checked against the column types when the row is added.
+        List<String> values = new ArrayList<>();
+        do {
+            Token value = next();
+            if (!isOperand(value)) {
+                throw malformed(BAD_INSERT, start);
+            }
+            values.add(value.text());
+        } while (accept(","));
+
+        if (!atEnd()) {
+            throw malformed(BAD_INSERT, start);
+        }
+        return new InsertStatement(name, values.toArray(new String[0]));
     }
 
-    private static String select(Database db, String exprs, String tables, String conds) {
-        // Debug code start
-        // System.out.printf("You are trying to select these expressions:" +
-        //         " '%s' from the join of these tables: '%s', filtered by these conditions: '%s'\n", exprs, tables, conds);
-        // Debug code end
+    /** Parses the rest of a select, failing with error if it is malformed. */
+    private SelectStatement select(String error, Token start) throws RuntimeException {
+        // If *, we want to return all columns
+        List<ColumnExpression> columnExpressions = null;
+        if (!accept("*")) {
+            columnExpressions = new ArrayList<>();
+            do {
+                columnExpressions.add(columnExpression());
+            } while (accept(","));
+        }
+
+        if (!accept("from")) {
+            throw malformed(error, start);
+        }
+        List<String> tableNames = new ArrayList<>();
+        do {
+            tableNames.add(word(error, start));
+        } while (accept(","));
+
+        List<Condition> conditions = new ArrayList<>();
+        if (accept("where")) {
+            do {
+                conditions.add(condition());
+            } while (accept("and"));
+        }
+
+        List<String> groupBy = new ArrayList<>();
+        if (accept("group")) {
+            if (!accept("by")) {
+                throw malformed(error, start);
+            }
+            do {
+                groupBy.add(word(error, start));
+            } while (accept(","));
+        }
+
+        String orderBy = null;
+        boolean descending = false;
+        if (accept("order")) {
+            if (!accept("by")) {
+                throw malformed(error, start);
+            }
+            orderBy = word(error, start);
+            descending = accept("desc");
+            if (!descending) {
+                accept("asc");
+            }
+        }
 
-        String[] exprArr = exprs.split("\\s*,\\s*");
-        String[] tableNameArr = tables.split("\\s*,\\s*");
-        String[] condArr;
+        int limit = -1;
+        if (accept("limit")) {
+            limit = count(error, start);
+        }
+
+        if (!atEnd()) {
+            throw malformed(error, start);
+        }
+        SelectStatement select = new SelectStatement(columnExpressions, tableNames, conditions, groupBy);
+        if (orderBy != null) {
+            select.orderBy(orderBy, descending);
+        }
+        if (limit >= 0) {
+            select.limit(limit);
+        }
+        return select;
+    }
 
-        if (conds == null) {
-            condArr = new String[0];
-        } else {
-            condArr = conds.split("\\s*and\\s*");
+    /** Consumes a count of rows, failing with error if the current token isn't one. */
+    private int count(String error, Token start) throws RuntimeException {
+        Token token = next();
+        try {
+            int count = Integer.parseInt(token.text());
+            if (count >= 0) {
+                return count;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below.
         }
+        throw malformed(error, start);
+    }
 
-        return db.select(exprArr, tableNameArr, condArr);
+    /** Parses <column>, <column> <operator> <column or literal> as <alias>
+     *  or <aggregate>(<column or *>) [as <alias>]. */
+    private ColumnExpression columnExpression() throws RuntimeException {
+        Token column = next();
+        if (column.kind() != Token.Kind.WORD) {
+            throw new RuntimeException(BAD_EXPRESSION);
+        }
+
+        if (AGGREGATES.contains(column.text()) && accept("(")) {
+            return aggregate(column.text());
+        }
+
+        Token operator = peek();
+        if (operator.kind() != Token.Kind.SYMBOL || !OPERATORS.contains(operator.text())) {
+            return ColumnExpression.column(column.text());
+        }
+        next();
+
+        Token operand = next();
+        if (!isOperand(operand) || !accept("as")) {
+            throw new RuntimeException(BAD_EXPRESSION);
+        }
+        Token alias = next();
+        if (alias.kind() != Token.Kind.WORD) {
+            throw new RuntimeException(BAD_EXPRESSION);
+        }
+        return ColumnExpression.arithmetic(column.text(), operator.text(), operand.text(), alias.text());
+    }
+
+    /** Parses the rest of an aggregate after the function name and its opening parenthesis. */
+    private ColumnExpression aggregate(String function) throws RuntimeException {
+        Token argument = next();
+        boolean everyRow = argument.is("*") && function.equals("count");
+        if ((argument.kind() != Token.Kind.WORD && !everyRow) || !accept(")")) {
+            throw new RuntimeException(BAD_EXPRESSION);
+        }
+
+        String alias = function + "(" + argument.text() + ")";
+        if (accept("as")) {
+            Token name = next();
+            if (name.kind() != Token.Kind.WORD) {
+                throw new RuntimeException(BAD_EXPRESSION);
+            }
+            alias = name.text();
+        }
+        return ColumnExpression.aggregate(function, argument.text(), alias);
+    }
+
+    /** Parses <column> <comparison> <column or literal>. */
+    private Condition condition() throws RuntimeException {
+        Token column = next();
+        Token operator = next();
+        Token operand = next();
+        if (column.kind() != Token.Kind.WORD || operator.kind() != Token.Kind.SYMBOL
+                || !COMPARISONS.contains(operator.text()) || !isOperand(operand)) {
+            throw new RuntimeException(BAD_CONDITION);
+        }
+        return Condition.of(column.text(), operator.text(), operand.text());
     }
 }
@@ -0,0 +1,54 @@
+package db;
+
+import db.expressions.Parameters;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * A statement that was parsed once for a database and can be executed many
+ * times with different literals bound to its ? placeholders.
+ */
+public class PreparedStatement {
+    private Database db;
+    private String query;
+    private Statement statement;
+
+    /** Binds statement, parsed from query, to db. */
+    PreparedStatement(Database db, String query, Statement statement) {
+        this.db = db;
+        this.query = query;
+        this.statement = statement;
+    }
+
+    /** Returns the number of literals execute expects. */
+    public int parameterCount() {
+        return statement.parameterCount();
+    }
+
+    /** Executes the statement with the given literals bound to its placeholders. */
+    public String execute(String... parameters) {
+        StringWriter out = new StringWriter();
+        try {
+            execute(out, parameters);
+        } catch (IOException e) {
+            // Writing to a string never fails.
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    /** Executes the statement with the given literals bound to its placeholders and writes
+     *  its output to out, returning whether there was any. */
+    public boolean execute(Writer out, String... parameters) throws IOException {
+        try {
+            Parameters.check(statement.parameterCount(), parameters);
+            return db.execute(query, statement, parameters, out);
+        } catch (RuntimeException e) {
+            out.write(String.valueOf(e.getMessage()));
+            return true;
+        }
+    }
+}
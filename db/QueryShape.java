@@ -0,0 +1,56 @@
+package db;
+
+import db.expressions.Parameters;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The shape of a query is its tokens with every literal replaced by a ? placeholder,
+ * so queries that only differ in their literals or spacing share a shape and can share
+ * a parsed statement.
+ */
+class QueryShape {
+    private String text;
+    private List<Token> tokens;
+    private String[] values;
+
+    private QueryShape(String text, List<Token> tokens, String[] values) {
+        this.text = text;
+        this.tokens = tokens;
+        this.values = values;
+    }
+
+    /** Returns the tokens of the shape joined by spaces. */
+    String text() {
+        return text;
+    }
+
+    /** Returns the tokens of the query with its literals replaced by placeholders. */
+    List<Token> tokens() {
+        return tokens;
+    }
+
+    /** Returns the literals taken out of the query, in the order they appeared. */
+    String[] values() {
+        return values;
+    }
+
+    /** Takes the literals out of query. */
+    static QueryShape of(String query) {
+        StringBuilder text = new StringBuilder();
+        List<Token> tokens = new ArrayList<>();
+        List<String> values = new ArrayList<>();
+
+        for (Token token : Lexer.tokenize(query)) {
+            if (token.isLiteral()) {
+                values.add(token.text());
+                token = new Token(Token.Kind.PARAMETER, Parameters.PLACEHOLDER, token.start());
+            }
+            tokens.add(token);
+            text.append(token.text()).append(' ');
+        }
+
+        return new QueryShape(text.toString(), tokens, values.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,247 @@
+package db;
+
+import db.expressions.ColumnExpression;
+import db.expressions.Condition;
+import db.table.RCTable.Operator;
+import db.table.RCTable.RCTable;
+import db.table.Table;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plans a select query over parsed column expressions and conditions.
+ * Every condition in the where clause is applied at the earliest point where
+ * the columns it reads exist: on a base table before the join, right after the
+ * join step that first brings its columns together, or on the projected table
+ * when it reads a computed column. The plan runs as a pipeline of operators that
+ * pull batches of rows from each other: the first table is scanned, each other
+ * table is filtered and joined to the rows coming out of the previous step, and
+ * the projection is evaluated batch by batch.
+ *
+ * A select with aggregates or a group by aggregates the joined rows before the
+ * projection, which then only picks the group by columns and aggregates in the
+ * order they were selected. Conditions on an aggregate are applied to the groups.
+ *
+ * An order by sorts the rows coming out of the rest of the pipeline. When they are
+ * sorted by a column of the first table that is selected unchanged and that column
+ * has an ordered index, the first table is scanned in index order instead, since
+ * the joins, filters and projection all keep the order of the rows they are given.
+ * Rows sorted by a column that isn't selected are sorted before the projection.
+ *
+ * A limit is put on top of the pipeline and pushed down by the operators it passes
+ * through, so the first table is only scanned until enough rows come out on top.
+ */
+class SelectPlan {
+    private List<Table> tables;
+    private List<ColumnExpression> columnExpressions;
+    private List<String> groupBy;
+    private List<ColumnExpression> aggregates = new ArrayList<>();
+    private String orderBy;
+    private boolean descending;
+    private int limit;
+    private List<List<Condition>> tableConditions = new ArrayList<>();
+    private List<List<Condition>> joinConditions = new ArrayList<>();
+    private List<Condition> projectedConditions = new ArrayList<>();
+
+    /** Plans selecting columnExpressions from the join of tables, filtered by conditions,
+     *  grouped by the columns in groupBy, sorted by the column orderBy unless it is null and
+     *  cut to the first limit rows unless it is negative. A null list of column expressions
+     *  selects every column. */
+    SelectPlan(List<Table> tables, List<ColumnExpression> columnExpressions, List<Condition> conditions,
+               List<String> groupBy, String orderBy, boolean descending, int limit) throws RuntimeException {
+        this.tables = tables;
+        this.columnExpressions = columnExpressions;
+        this.groupBy = groupBy;
+        this.orderBy = orderBy;
+        this.descending = descending;
+        this.limit = limit;
+        if (columnExpressions != null) {
+            for (ColumnExpression expr : columnExpressions) {
+                if (expr.isAggregate()) {
+                    aggregates.add(expr);
+                }
+            }
+        }
+        if (aggregates()) {
+            checkGrouped();
+        }
+
+        for (int i = 0; i < tables.size(); i++) {
+            tableConditions.add(new ArrayList<>());
+            joinConditions.add(new ArrayList<>());
+        }
+
+        for (Condition condition : conditions) {
+            place(condition);
+        }
+    }
+
+    /** Returns whether the rows could come in order from an ordered index of the first table. */
+    private boolean mayScanInOrder() {
+        return orderBy != null && !aggregates() && tables.get(0).hasColumn(orderBy)
+                && (selectsAll() || passedThrough().contains(orderBy));
+    }
+
+    /** Returns whether the select has a column called name. */
+    private boolean selects(String name) {
+        if (selectsAll()) {
+            return true;
+        }
+        for (ColumnExpression expr : columnExpressions) {
+            if (expr.name().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns whether every column is selected unchanged. */
+    private boolean selectsAll() {
+        return columnExpressions == null;
+    }
+
+    /** Returns whether the joined rows are aggregated before the projection. */
+    private boolean aggregates() {
+        return !aggregates.isEmpty() || !groupBy.isEmpty();
+    }
+
+    /** Fails unless every selected column is a group by column or an aggregate. */
+    private void checkGrouped() throws RuntimeException {
+        if (selectsAll()) {
+            throw new RuntimeException("ERROR: * can't be selected with a group by!");
+        }
+        for (ColumnExpression expr : columnExpressions) {
+            if (!expr.isAggregate() && (!expr.isColumnReference() || !groupBy.contains(expr.name()))) {
+                throw new RuntimeException(String.format("ERROR: %s is not grouped or aggregated!", expr.name()));
+            }
+        }
+    }
+
+    /** Returns the names of the columns the projection passes through unchanged. */
+    private Set<String> passedThrough() {
+        Set<String> names = new HashSet<>();
+        for (ColumnExpression expr : columnExpressions) {
+            if (expr.isColumnReference()) {
+                names.add(expr.name());
+            }
+        }
+        return names;
+    }
+
+    /** Returns whether table has every column in names. */
+    private static boolean hasColumns(Table table, List<String> names) {
+        for (String name : names) {
+            if (!table.hasColumn(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Assigns condition to the earliest point of the plan where its columns exist. */
+    private void place(Condition condition) {
+        List<String> columns = condition.columns();
+
+        // A condition can only move below the projection if it reads columns the projection
+        // passes through, anything else refers to a computed column or isn't selected at all.
+        // Below an aggregation, any column of the tables is there before the rows are grouped.
+        if (!selectsAll() && !aggregates() && !passedThrough().containsAll(columns)) {
+            projectedConditions.add(condition);
+            return;
+        }
+
+        // The natural join keeps only rows whose common columns are equal, so the condition
+        // can be applied to every base table that has all of its columns.
+        boolean placed = false;
+        for (int i = 0; i < tables.size(); i++) {
+            if (hasColumns(tables.get(i), columns)) {
+                tableConditions.get(i).add(condition);
+                placed = true;
+            }
+        }
+        if (placed) {
+            return;
+        }
+
+        // Otherwise apply it right after the join step where its columns first appear together.
+        Set<String> missing = new HashSet<>(columns);
+        for (int i = 0; i < tables.size(); i++) {
+            missing.removeIf(tables.get(i)::hasColumn);
+            if (missing.isEmpty()) {
+                joinConditions.get(i).add(condition);
+                return;
+            }
+        }
+        projectedConditions.add(condition);
+    }
+
+    /** Returns conditions with parameters bound to their placeholders. */
+    private static List<Condition> withParameters(List<Condition> conditions, String[] parameters) {
+        List<Condition> bound = new ArrayList<>();
+        for (Condition condition : conditions) {
+            bound.add(condition.withParameters(parameters));
+        }
+        return bound;
+    }
+
+    /** Returns table filtered by every condition in a single pass, or null if the filter fails. */
+    private static Table filter(Table table, List<Condition> conditions, String[] parameters) throws RuntimeException {
+        if (conditions.isEmpty()) {
+            return table;
+        }
+        return table.filter(withParameters(conditions, parameters));
+    }
+
+    /** Returns the column expressions with parameters bound to their placeholders. After an
+     *  aggregation every expression is a column of the aggregated rows. */
+    private List<ColumnExpression> projection(String[] parameters) throws RuntimeException {
+        List<ColumnExpression> bound = new ArrayList<>();
+        for (ColumnExpression expr : columnExpressions) {
+            bound.add(aggregates() ? ColumnExpression.column(expr.name()) : expr.withParameters(parameters));
+        }
+        return bound;
+    }
+
+    /** Builds the pipeline of the plan with parameters bound to the placeholders and returns
+     *  the operator producing the selected rows, or null if the selection failed. Every
+     *  condition and expression is bound here, so an invalid one fails before any row is read.
+     *  Only the tables joined to the first one are filtered up front, since their rows are
+     *  loaded into hash tables anyway. An order by sorts at most sortBudget rows in memory. */
+    Operator open(String[] parameters, int sortBudget) throws RuntimeException {
+        RCTable first = (RCTable) tables.get(0);
+        List<Condition> firstConditions = withParameters(tableConditions.get(0), parameters);
+        Operator joined = mayScanInOrder() ? first.scanInOrder(orderBy, descending, firstConditions) : null;
+        boolean inOrder = joined != null;
+        if (!inOrder) {
+            joined = first.scan(firstConditions);
+        }
+        for (int i = 1; i < tables.size() && joined != null; i++) {
+            Table next = filter(tables.get(i), tableConditions.get(i), parameters);
+            if (next == null) {
+                return null;
+            }
+            joined = joined.join(next).filter(withParameters(joinConditions.get(i), parameters));
+        }
+
+        if (joined == null) {
+            return null;
+        }
+
+        boolean sortsFirst = orderBy != null && !inOrder && !aggregates() && !selects(orderBy);
+        if (sortsFirst) {
+            joined = joined.sort(orderBy, descending, sortBudget);
+        } else if (aggregates()) {
+            joined = joined.aggregate(groupBy, aggregates);
+        }
+        Operator projected = selectsAll() ? joined : joined.project(projection(parameters));
+        Operator filtered = projected.filter(withParameters(projectedConditions, parameters));
+        Operator sorted = filtered;
+        if (filtered != null && orderBy != null && !inOrder && !sortsFirst) {
+            sorted = filtered.sort(orderBy, descending, sortBudget);
+        }
+        return sorted == null || limit < 0 ? sorted : sorted.limit(limit);
+    }
+}
@@ -0,0 +1,151 @@
+package db;
+
+import db.expressions.ColumnExpression;
+import db.expressions.Condition;
+import db.table.RCTable.Operator;
+import db.table.Table;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A parsed select. The column expressions and conditions are parsed once, and
+ * the plan is kept for as long as the tables it reads stay the same.
+ */
+class SelectStatement implements Statement {
+    private List<String> tableNames;
+    private List<ColumnExpression> columnExpressions;
+    private List<Condition> conditions = new ArrayList<>();
+    private List<String> groupBy = new ArrayList<>();
+    private String orderBy;
+    private boolean descending;
+    private int limit = -1;
+    private int parameterCount;
+    private RuntimeException error;
+
+    private List<Table> plannedTables;
+    private SelectPlan plan;
+
+    /** Creates a select of columnExpressions from the join of the named tables, filtered by
+     *  conditions. A null list of column expressions selects every column. Placeholders are
+     *  numbered in the order they appear. */
+    SelectStatement(List<ColumnExpression> columnExpressions, List<String> tableNames, List<Condition> conditions) {
+        this(columnExpressions, tableNames, conditions, new ArrayList<>());
+    }
+
+    /** Creates a select like the one above whose rows are grouped by the columns in groupBy. */
+    SelectStatement(List<ColumnExpression> columnExpressions, List<String> tableNames,
+                    List<Condition> conditions, List<String> groupBy) {
+        this.tableNames = tableNames;
+        this.groupBy = groupBy;
+
+        if (columnExpressions != null) {
+            this.columnExpressions = new ArrayList<>();
+            for (ColumnExpression expr : columnExpressions) {
+                this.columnExpressions.add(expr.hasPlaceholder() ? expr.numbered(parameterCount++) : expr);
+            }
+        }
+
+        for (Condition condition : conditions) {
+            this.conditions.add(condition.hasPlaceholder() ? condition.numbered(parameterCount++) : condition);
+        }
+    }
+
+    /** Sorts the selected rows by the selected column called column, in descending order if
+     *  descending is set. */
+    void orderBy(String column, boolean descending) {
+        this.orderBy = column;
+        this.descending = descending;
+    }
+
+    /** Keeps only the first count selected rows. */
+    void limit(int count) {
+        this.limit = count;
+    }
+
+    private SelectStatement(List<String> tableNames, RuntimeException error) {
+        this.tableNames = tableNames;
+        this.error = error;
+    }
+
+    /** Parses a select from the text of its column expressions and conditions. A parse error
+     *  is reported when the statement runs, after its tables are looked up. */
+    static SelectStatement parse(List<String> columnExpressions, List<String> tableNames, List<String> conditions) {
+        try {
+            // If *, we want to return all columns
+            List<ColumnExpression> parsedExpressions = null;
+            if (!columnExpressions.get(0).equals("*")) {
+                parsedExpressions = new ArrayList<>();
+                for (String expr : columnExpressions) {
+                    parsedExpressions.add(ColumnExpression.parse(expr));
+                }
+            }
+
+            List<Condition> parsedConditions = new ArrayList<>();
+            for (String condition : conditions) {
+                parsedConditions.add(Condition.parse(condition));
+            }
+            return new SelectStatement(parsedExpressions, tableNames, parsedConditions);
+        } catch (RuntimeException e) {
+            return new SelectStatement(tableNames, e);
+        }
+    }
+
+    /** Returns whether tables are the ones the current plan was made for. */
+    private boolean planned(List<Table> tables) {
+        if (plan == null || plannedTables.size() != tables.size()) {
+            return false;
+        }
+        for (int i = 0; i < tables.size(); i++) {
+            if (plannedTables.get(i) != tables.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Runs the select against db and returns the selected table, or null if the selection failed. */
+    Table select(Database db, String[] parameters) throws RuntimeException {
+        Operator selected = open(db, parameters);
+        return selected == null ? null : selected.collect();
+    }
+
+    /** Plans the select against db and returns the operator producing the selected rows a
+     *  batch at a time, or null if the selection failed. */
+    Operator open(Database db, String[] parameters) throws RuntimeException {
+        // Return a null table if not all table names are valid.
+        List<Table> tables = db.tablesForNames(tableNames);
+        if (tables == null || tableNames.isEmpty()) {
+            return null;
+        }
+
+        if (error != null) {
+            throw error;
+        }
+
+        // Tables are replaced rather than altered when they are dropped or loaded, so
+        // the plan only has to be made again when a name refers to a different table.
+        if (!planned(tables)) {
+            plan = new SelectPlan(tables, columnExpressions, conditions, groupBy, orderBy, descending, limit);
+            plannedTables = tables;
+        }
+        return plan.open(parameters, db.sortBudget());
+    }
+
+    @Override
+    public String execute(Database db, String[] parameters) throws RuntimeException {
+        return db.select(this, parameters);
+    }
+
+    @Override
+    public boolean execute(Database db, String[] parameters, Writer out) throws IOException {
+        return db.select(this, parameters, out);
+    }
+
+    @Override
+    public int parameterCount() {
+        return parameterCount;
+    }
+}
@@ -0,0 +1,39 @@
+package db;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A parsed query. It can be executed many times, with a literal bound to
+ * each of its ? placeholders in the order they appear in the query.
+ */
+public interface Statement {
+    /** Runs this statement against db with the given placeholder values and returns its output. */
+    String execute(Database db, String[] parameters) throws RuntimeException;
+
+    /** Runs this statement and writes its output to out, returning whether there was any.
+     *  Statements whose output can be large write it as it is produced. */
+    default boolean execute(Database db, String[] parameters, Writer out) throws IOException {
+        String result = execute(db, parameters);
+        out.write(result);
+        return !result.isEmpty();
+    }
+
+    /** Returns the number of ? placeholders in this statement. */
+    default int parameterCount() {
+        return 0;
+    }
+
+    /** Returns whether running this statement changes the tables of the database, so it
+     *  must be written to the write-ahead log. */
+    default boolean changesTables() {
+        return false;
+    }
+
+    /** Returns the query written to the write-ahead log once this statement, parsed from
+     *  query, succeeds. Running the logged query again must leave the tables as this
+     *  statement left them. */
+    default String loggedQuery(String query) {
+        return query;
+    }
+}
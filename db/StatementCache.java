@@ -0,0 +1,39 @@
+package db;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A least recently used cache of parsed statements, keyed by the shape of the
+ * query they were parsed from. Every lookup reorders the map, and several threads
+ * may run queries at once, so each access holds the lock of the cache.
+ */
+class StatementCache {
+    static final int DEFAULT_CAPACITY = 256;
+
+    private Map<String, Statement> statements;
+
+    StatementCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    StatementCache(int capacity) {
+        // An access ordered map evicts the statement that was used least recently.
+        statements = new LinkedHashMap<String, Statement>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Statement> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /** Returns the statement parsed from shape, or null if it isn't cached. */
+    synchronized Statement get(String shape) {
+        return statements.get(shape);
+    }
+
+    /** Caches statement as the parse of shape. */
+    synchronized void put(String shape, Statement statement) {
+        statements.put(shape, statement);
+    }
+}
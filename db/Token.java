@@ -0,0 +1,61 @@
+package db;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A token of a query and the position in the query where it starts.
+ */
+class Token {
+    enum Kind { WORD, NUMBER, STRING, SYMBOL, PARAMETER, END }
+
+    static final Set<String> KEYWORDS = new HashSet<>(Arrays.asList(
+            "create", "table", "as", "select", "from", "where", "and", "insert", "into", "values",
+            "load", "store", "drop", "print"));
+
+    private Kind kind;
+    private String text;
+    private int start;
+
+    Token(Kind kind, String text, int start) {
+        this.kind = kind;
+        this.text = text;
+        this.start = start;
+    }
+
+    /** Returns what kind of token this is. */
+    Kind kind() {
+        return kind;
+    }
+
+    /** Returns the text of this token, string literals keep their quotes. */
+    String text() {
+        return text;
+    }
+
+    /** Returns the position in the query where this token starts. */
+    int start() {
+        return start;
+    }
+
+    /** Returns whether this token is the word or symbol text. */
+    boolean is(String text) {
+        return (kind == Kind.WORD || kind == Kind.SYMBOL) && this.text.equals(text);
+    }
+
+    /** Returns whether this token is a number or a string literal. */
+    boolean isLiteral() {
+        return kind == Kind.NUMBER || kind == Kind.STRING;
+    }
+
+    /** Returns whether this token can stand for a value, so a '-' after it is a subtraction. */
+    boolean isOperand() {
+        return (kind == Kind.WORD && !KEYWORDS.contains(text)) || kind == Kind.PARAMETER || isLiteral() || is(")");
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
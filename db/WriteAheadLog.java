@@ -0,0 +1,270 @@
+package db;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of the statements that changed the tables of a database, so they
+ * can be run again after a crash. Each record holds the text of a statement and the
+ * literals bound to its placeholders, framed by its length and a checksum so a record
+ * torn by a crash is recognized and dropped. Records are buffered as they are appended
+ * and written by group commit: one caller writes and forces everything appended so far,
+ * while the callers that append in the meantime wait for the next write. Once the files
+ * of the tables hold everything the log recorded, a checkpoint replaces the log with the
+ * few records that load them again, so the log doesn't grow without bound.
+ */
+class WriteAheadLog implements AutoCloseable {
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    /** A statement read back from the log. */
+    static class Record {
+        private String query;
+        private String[] parameters;
+
+        Record(String query, String[] parameters) {
+            this.query = query;
+            this.parameters = parameters;
+        }
+
+        String query() {
+            return query;
+        }
+
+        String[] parameters() {
+            return parameters;
+        }
+    }
+
+    private Path path;
+    private FileChannel channel;
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private long appended;
+    private long durable;
+    private boolean writing;
+    private IOException failure;
+
+    /** Opens the log at path, creating it if it doesn't exist. */
+    WriteAheadLog(Path path) throws IOException {
+        this.path = path;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    /** Returns every complete record in the log, in the order they were appended. Anything
+     *  after the last complete record is cut off, so new records follow it. */
+    List<Record> replay() throws IOException {
+        List<Record> records = new ArrayList<>();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long position = 0;
+        long size = channel.size();
+
+        while (position + HEADER_SIZE <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            if (length < 0 || position + HEADER_SIZE + length > size) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, position + HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(body.array());
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            body.flip();
+            records.add(decode(body));
+            position += HEADER_SIZE + length;
+        }
+
+        channel.truncate(position);
+        channel.position(position);
+        return records;
+    }
+
+    /** Fills buffer from the log starting at position. */
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("ERROR: The log ended early!");
+            }
+        }
+    }
+
+    /** Buffers a record of query with parameters bound to its placeholders, and returns its
+     *  sequence number for commit. */
+    synchronized long append(String query, String[] parameters) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+
+        writeRecord(new DataOutputStream(pending), query, parameters);
+        return ++appended;
+    }
+
+    /** Replaces the log with records, which must rebuild everything recorded so far, and
+     *  counts the records appended until now as committed. The records are written and
+     *  forced to a file next to the log, which then takes its place, so a crash leaves
+     *  either the old log or the new one. */
+    synchronized void checkpoint(List<Record> records) throws IOException {
+        // The write in progress still goes to the old log.
+        while (writing && failure == null) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("ERROR: Interrupted while writing the log!");
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+
+        Path replacement = path.resolveSibling(path.getFileName() + ".checkpoint");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (Record record : records) {
+            writeRecord(out, record.query(), record.parameters());
+        }
+        try (FileChannel written = FileChannel.open(replacement, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                written.write(buffer);
+            }
+            written.force(false);
+        }
+
+        try {
+            Files.move(replacement, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel.close();
+            channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        } catch (IOException e) {
+            // It is no longer known which log new records would go to.
+            failure = e;
+            notifyAll();
+            throw e;
+        }
+        pending.reset();
+        durable = appended;
+        notifyAll();
+    }
+
+    /** Writes a record of query with parameters to out, framed by its length and checksum. */
+    private static void writeRecord(DataOutputStream out, String query, String[] parameters) throws IOException {
+        byte[] body = encode(query, parameters);
+        CRC32 crc = new CRC32();
+        crc.update(body);
+
+        out.writeInt(body.length);
+        out.writeInt((int) crc.getValue());
+        out.write(body);
+    }
+
+    /** Returns once the record with the given sequence number has been forced to disk. */
+    void commit(long sequence) throws IOException {
+        byte[] batch;
+        long batchEnd;
+        synchronized (this) {
+            // Wait for the write in progress, it may already hold this record.
+            while (writing && durable < sequence && failure == null) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("ERROR: Interrupted while writing the log!");
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (durable >= sequence) {
+                return;
+            }
+
+            // Become the writer of everything appended so far.
+            writing = true;
+            batch = pending.toByteArray();
+            batchEnd = appended;
+            pending.reset();
+        }
+
+        IOException error = null;
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            error = e;
+        }
+
+        synchronized (this) {
+            writing = false;
+            if (error == null) {
+                durable = batchEnd;
+            } else {
+                failure = error;
+            }
+            notifyAll();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private static byte[] encode(String query, String[] parameters) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        writeString(out, query);
+        out.writeInt(parameters.length);
+        for (String parameter : parameters) {
+            writeString(out, parameter);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static Record decode(ByteBuffer body) {
+        String query = readString(body);
+        String[] parameters = new String[body.getInt()];
+        for (int i = 0; i < parameters.length; i++) {
+            parameters[i] = readString(body);
+        }
+        return new Record(query, parameters);
+    }
+
+    private static String readString(ByteBuffer body) {
+        byte[] bytes = new byte[body.getInt()];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
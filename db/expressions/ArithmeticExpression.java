@@ -0,0 +1,69 @@
+package db.expressions;
+
+import db.literals.FloatLiteral;
+import db.literals.IntLiteral;
+import db.literals.Literal;
+import db.operators.arithmetic.ArithmeticOperator;
+import db.table.RCTable.Column;
+import db.table.RCTable.Kernel;
+
+import java.util.List;
+
+/**
+ * An expression that applies an arithmetic operator to a column and either
+ * another column or a literal, producing a column called alias.
+ */
+public class ArithmeticExpression implements Expression {
+    private String alias;
+    private Expression left;
+    private ArithmeticOperator operator;
+    private Expression right;
+    private Literal literal;
+    private Kernel kernel;
+
+    /** Creates an expression applying operator to two columns. */
+    ArithmeticExpression(String alias, Expression left, ArithmeticOperator operator, Expression right) {
+        this.alias = alias;
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+        kernel = Kernel.of(operator, left.type(), right.type());
+    }
+
+    /** Creates an expression applying operator to a column and a literal. */
+    ArithmeticExpression(String alias, Expression left, ArithmeticOperator operator, Literal literal) {
+        this.alias = alias;
+        this.left = left;
+        this.operator = operator;
+        this.literal = literal;
+        kernel = Kernel.of(operator, left.type(), literal.getType());
+    }
+
+    @Override
+    public String name() {
+        return alias;
+    }
+
+    /** Ints combine to ints, any float makes a float and strings combine to strings. The
+     *  constructors already rejected any other pair of types. */
+    @Override
+    public String type() {
+        String leftType = left.type();
+        String rightType = right == null ? literal.getType() : right.type();
+        boolean leftNumber = leftType.equals(IntLiteral.type) || leftType.equals(FloatLiteral.type);
+        boolean rightNumber = rightType.equals(IntLiteral.type) || rightType.equals(FloatLiteral.type);
+        if (leftNumber && rightNumber && !(leftType.equals(IntLiteral.type) && rightType.equals(IntLiteral.type))) {
+            return FloatLiteral.type;
+        }
+        return leftType;
+    }
+
+    @Override
+    public Column evaluate(List<Column> columns) throws RuntimeException {
+        Column operand0 = left.evaluate(columns);
+        if (right == null) {
+            return kernel.apply(operand0, literal, alias);
+        }
+        return kernel.apply(operand0, right.evaluate(columns), alias);
+    }
+}
@@ -0,0 +1,163 @@
+package db.expressions;
+
+import db.literals.Literal;
+import db.operators.Operator;
+import db.operators.arithmetic.ArithmeticOperator;
+import db.table.RCTable.Column;
+
+import java.util.List;
+
+/**
+ * A parsed select column expression. It is either a plain column name,
+ * <column> <arithmetic operator> <column or literal> as <alias>, with or
+ * without spaces around the operator, or an aggregate <function>(<column>).
+ * Binding it to the columns of a table gives an Expression that can be
+ * evaluated, aggregates are computed by a group by instead.
+ */
+public class ColumnExpression {
+    private String name;
+    private String left;
+    private String operator;
+    private String right;
+    private String function;
+    private int parameter = -1;
+
+    private ColumnExpression(String name, String left, String operator, String right) {
+        this.name = name;
+        this.left = left;
+        this.operator = operator;
+        this.right = right;
+    }
+
+    /** Parses a single select column expression. */
+    public static ColumnExpression parse(String expr) throws RuntimeException {
+        String[] subexpressions = expr.trim().split("\\s+");
+
+        // Single operand means it must be a column name.
+        if (subexpressions.length == 1) {
+            return new ColumnExpression(subexpressions[0], null, null, null);
+        } else if (subexpressions.length == 3 && subexpressions[1].equals("as")) {
+            // Split compound on arithmetic operator.
+            String compound = subexpressions[0];
+            String[] compoundExpressions = compound.split("(\\+|-|\\*|/)");
+            if (compoundExpressions.length != 2) {
+                throw new RuntimeException("ERROR: Arithmetic Expression not formatted correctly!");
+            }
+
+            String op = compound.substring(compoundExpressions[0].length(),
+                    compound.length() - compoundExpressions[1].length());
+            return new ColumnExpression(subexpressions[2], compoundExpressions[0], op, compoundExpressions[1]);
+        } else if (subexpressions.length == 5 && subexpressions[3].equals("as")) {
+            return new ColumnExpression(subexpressions[4], subexpressions[0], subexpressions[1], subexpressions[2]);
+        }
+
+        throw new RuntimeException("ERROR: Column expression is not valid.");
+    }
+
+    /** Creates a plain reference to the column called name. */
+    public static ColumnExpression column(String name) {
+        return new ColumnExpression(name, null, null, null);
+    }
+
+    /** Creates an expression applying operator to left and right, called alias. */
+    public static ColumnExpression arithmetic(String left, String operator, String right, String alias) {
+        return new ColumnExpression(alias, left, operator, right);
+    }
+
+    /** Creates the aggregate function applied to the column called argument, or to every
+     *  row if argument is *, called alias. */
+    public static ColumnExpression aggregate(String function, String argument, String alias) {
+        ColumnExpression aggregate = new ColumnExpression(alias, argument, null, null);
+        aggregate.function = function;
+        return aggregate;
+    }
+
+    /** Returns whether this expression passes a column through unchanged. */
+    public boolean isColumnReference() {
+        return left == null;
+    }
+
+    /** Returns whether this expression is an aggregate function. */
+    public boolean isAggregate() {
+        return function != null;
+    }
+
+    /** Returns the aggregate function of this expression. */
+    public String function() {
+        return function;
+    }
+
+    /** Returns the column the aggregate function is applied to, or * for every row. */
+    public String argument() {
+        return left;
+    }
+
+    /** Returns whether the second operand is a ? placeholder. */
+    public boolean hasPlaceholder() {
+        return !isColumnReference() && Parameters.isPlaceholder(right);
+    }
+
+    /** Returns a copy of this expression whose placeholder is parameter number index. */
+    public ColumnExpression numbered(int index) {
+        ColumnExpression numbered = new ColumnExpression(name, left, operator, right);
+        numbered.parameter = index;
+        return numbered;
+    }
+
+    /** Returns this expression with its placeholder replaced by the bound literal. */
+    public ColumnExpression withParameters(String[] values) throws RuntimeException {
+        if (parameter == -1) {
+            return this;
+        }
+        return new ColumnExpression(name, left, operator, Parameters.bind(values, parameter));
+    }
+
+    /** Returns the name of the column this expression produces. */
+    public String name() {
+        return name;
+    }
+
+    /** Resolves the columns and operator of this expression against columns. */
+    public Expression bind(List<Column> columns) throws RuntimeException {
+        if (isAggregate()) {
+            throw new RuntimeException("ERROR: Column expression is not valid.");
+        }
+        if (isColumnReference()) {
+            return ColumnReference.bind(columns, name);
+        }
+
+        ColumnReference operand0 = ColumnReference.bind(columns, left);
+
+        // The second operand is a column if there is one by that name, otherwise a literal.
+        Expression operand1 = null;
+        Literal literal = null;
+        if (ColumnReference.ordinal(columns, right) != -1) {
+            operand1 = ColumnReference.bind(columns, right);
+        } else {
+            literal = Literal.make(right);
+            if (literal == null) {
+                throw new RuntimeException("ERROR: Operand 2 is neither a column nor a literal.");
+            }
+        }
+
+        Operator op = Operator.getOperator(operator);
+        if (!(op instanceof ArithmeticOperator)) {
+            throw new RuntimeException("ERROR: Invalid operator.");
+        }
+
+        if (operand1 == null) {
+            return new ArithmeticExpression(name, operand0, (ArithmeticOperator) op, literal);
+        }
+        return new ArithmeticExpression(name, operand0, (ArithmeticOperator) op, operand1);
+    }
+
+    @Override
+    public String toString() {
+        if (isColumnReference()) {
+            return name;
+        } else if (isAggregate()) {
+            return function + "(" + left + ") as " + name;
+        }
+        return left + " " + operator + " " + right + " as " + name;
+    }
+}
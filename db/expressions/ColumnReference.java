@@ -0,0 +1,59 @@
+package db.expressions;
+
+import db.table.RCTable.Column;
+
+import java.util.List;
+
+/**
+ * An expression that passes a column of the input through unchanged.
+ */
+public class ColumnReference implements Expression {
+    private int ordinal;
+    private String name;
+    private String type;
+
+    private ColumnReference(int ordinal, String name, String type) {
+        this.ordinal = ordinal;
+        this.name = name;
+        this.type = type;
+    }
+
+    /** Returns the position of the column called name in columns, or -1 if there is none. */
+    public static int ordinal(List<Column> columns, String name) {
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).name().equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** Resolves the column called name in columns. */
+    public static ColumnReference bind(List<Column> columns, String name) throws RuntimeException {
+        int ordinal = ordinal(columns, name);
+        if (ordinal == -1) {
+            throw new RuntimeException(String.format("ERROR: %s is not a column!", name));
+        }
+        return new ColumnReference(ordinal, name, columns.get(ordinal).type());
+    }
+
+    /** Returns the position of the referenced column. */
+    public int ordinal() {
+        return ordinal;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public String type() {
+        return type;
+    }
+
+    @Override
+    public Column evaluate(List<Column> columns) {
+        return columns.get(ordinal);
+    }
+}
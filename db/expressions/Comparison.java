@@ -0,0 +1,90 @@
+package db.expressions;
+
+import db.literals.Literal;
+import db.literals.StringLiteral;
+import db.operators.comparison.ComparisonOperator;
+import db.table.RCTable.Column;
+import db.table.RCTable.StringColumn;
+
+import java.util.List;
+
+/**
+ * A comparison between a column and either another column or a literal,
+ * with both columns resolved to their ordinal positions. An equality or
+ * inequality between a string column and a string literal compares the code
+ * of each item with the code of the literal, looked up once per column.
+ */
+public class Comparison implements Predicate {
+    private int column;
+    private ComparisonOperator operator;
+    private int otherColumn;
+    private Literal literal;
+    private boolean comparesCodes;
+    private Code code;
+
+    /** Creates a comparison between two columns. */
+    Comparison(int column, ComparisonOperator operator, int otherColumn) {
+        this.column = column;
+        this.operator = operator;
+        this.otherColumn = otherColumn;
+    }
+
+    /** Creates a comparison between a column and a literal. */
+    Comparison(int column, ComparisonOperator operator, Literal literal) {
+        this.column = column;
+        this.operator = operator;
+        this.otherColumn = -1;
+        this.literal = literal;
+        this.comparesCodes = literal instanceof StringLiteral && operator.holds(-1) == operator.holds(1);
+    }
+
+    @Override
+    public boolean test(List<Column> columns, int row) throws RuntimeException {
+        if (otherColumn == -1) {
+            Column c = columns.get(column);
+            if (comparesCodes && c instanceof StringColumn) {
+                return testCode((StringColumn) c, row);
+            }
+            return c.satisfies(row, operator, literal);
+        }
+        return columns.get(column).satisfies(row, operator, columns.get(otherColumn), row);
+    }
+
+    @Override
+    public int filter(List<Column> columns, int[] rows, int count) throws RuntimeException {
+        if (otherColumn != -1) {
+            return columns.get(column).filter(rows, count, operator, columns.get(otherColumn));
+        }
+        Column c = columns.get(column);
+        if (comparesCodes && c instanceof StringColumn) {
+            return Predicate.super.filter(columns, rows, count);
+        }
+        return c.filter(rows, count, operator, literal);
+    }
+
+    /** Tests the item at position row of a string column against the literal by its code. */
+    private boolean testCode(StringColumn strings, int row) {
+        if (strings.isNOVALUE(row)) {
+            return false;
+        }
+        Code c = code;
+        if (c == null || c.column != strings || c.length != strings.length()) {
+            c = new Code(strings, strings.codeOf(((StringLiteral) literal).getObject()));
+            code = c;
+        }
+        return strings.code(row) == c.code ? operator.holds(0) : operator.holds(1);
+    }
+
+    /** The code of the literal in the dictionary of a column when it had length items. */
+    private static class Code {
+        private final StringColumn column;
+        private final int length;
+        private final int code;
+
+        Code(StringColumn column, int code) {
+            this.column = column;
+            this.length = column.length();
+            this.code = code;
+        }
+    }
+}
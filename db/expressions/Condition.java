@@ -0,0 +1,140 @@
+package db.expressions;
+
+import db.literals.Literal;
+import db.operators.Operator;
+import db.operators.comparison.ComparisonOperator;
+import db.table.RCTable.Column;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A parsed conditional expression of the form <column> <comparison> <column or literal>.
+ * It can be inspected before it is applied to a table, and binding it to the
+ * columns of a table gives a Predicate that can be tested.
+ */
+public class Condition {
+    private String column;
+    private String operator;
+    private String operand;
+    private int parameter = -1;
+
+    private Condition(String column, String operator, String operand) {
+        this.column = column;
+        this.operator = operator;
+        this.operand = operand;
+    }
+
+    /** Splits the condition string into its parts. */
+    public static Condition parse(String condition) throws RuntimeException {
+        String[] subexpressions = condition.split(">=|<=|==|!=|>|<");
+
+        // Malformed conditional expression
+        if (subexpressions.length != 2) {
+            throw new RuntimeException("ERROR: Malformed conditional expression!");
+        }
+        String op = condition.substring(subexpressions[0].length(), condition.length() - subexpressions[1].length());
+        return new Condition(subexpressions[0].trim(), op, subexpressions[1].trim());
+    }
+
+    /** Creates a condition comparing column to operand. */
+    public static Condition of(String column, String operator, String operand) {
+        return new Condition(column, operator, operand);
+    }
+
+    /** Returns the name of the column on the left of the comparison. */
+    public String column() {
+        return column;
+    }
+
+    /** Returns the comparison operator symbol. */
+    public String operator() {
+        return operator;
+    }
+
+    /** Returns the right side of the comparison, a column name or a literal. */
+    public String operand() {
+        return operand;
+    }
+
+    /** Returns whether the right side of the comparison is a column name. */
+    public boolean comparesColumns() {
+        return !Literal.isLiteral(operand) && !hasPlaceholder();
+    }
+
+    /** Returns whether the right side of the comparison is a ? placeholder. */
+    public boolean hasPlaceholder() {
+        return Parameters.isPlaceholder(operand);
+    }
+
+    /** Returns a copy of this condition whose placeholder is parameter number index. */
+    public Condition numbered(int index) {
+        Condition numbered = new Condition(column, operator, operand);
+        numbered.parameter = index;
+        return numbered;
+    }
+
+    /** Returns this condition with its placeholder replaced by the bound literal. */
+    public Condition withParameters(String[] values) throws RuntimeException {
+        if (parameter == -1) {
+            return this;
+        }
+        return new Condition(column, operator, Parameters.bind(values, parameter));
+    }
+
+    /** Returns the names of every column the condition reads. */
+    public List<String> columns() {
+        List<String> names = new ArrayList<>();
+        names.add(column);
+        if (comparesColumns()) {
+            names.add(operand);
+        }
+        return names;
+    }
+
+    /** Resolves the columns and operator of this condition against columns.
+     *  Returns null if the operator isn't a comparison. Operands whose types can't be
+     *  compared fail here, before any row is read, so the outcome doesn't depend on the
+     *  rows or on whether an index answers the condition. */
+    public Predicate bind(List<Column> columns) throws RuntimeException {
+        int ordinal = ColumnReference.ordinal(columns, column);
+
+        // If the first column doesn't exist in the table
+        if (ordinal == -1) {
+            throw new RuntimeException("ERROR: First column doesn't exist in the table!");
+        }
+
+        Operator op = Operator.getOperator(operator);
+        if (!(op instanceof ComparisonOperator)) {
+            return null;
+        }
+
+        // It's not a literal, check if it's a column name.
+        if (comparesColumns()) {
+            int otherOrdinal = ColumnReference.ordinal(columns, operand);
+
+            // Second column doesn't exist.
+            if (otherOrdinal == -1) {
+                throw new RuntimeException("ERROR: Second operator is not a column/literal!");
+            }
+            checkTypes(columns.get(ordinal).type(), columns.get(otherOrdinal).type());
+            return new Comparison(ordinal, (ComparisonOperator) op, otherOrdinal);
+        }
+
+        Literal literal = Literal.make(operand);
+        checkTypes(columns.get(ordinal).type(), literal.getType());
+        return new Comparison(ordinal, (ComparisonOperator) op, literal);
+    }
+
+    /** Fails unless items of type a can be compared with items of type b. */
+    private static void checkTypes(String a, String b) throws RuntimeException {
+        if (!Column.comparableTypes(a, b)) {
+            throw new RuntimeException(Column.INCOMPATIBLE_TYPES_ERROR);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return column + " " + operator + " " + operand;
+    }
+}
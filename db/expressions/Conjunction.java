@@ -0,0 +1,37 @@
+package db.expressions;
+
+import db.table.RCTable.Column;
+
+import java.util.List;
+
+/**
+ * A predicate that holds when every one of its predicates holds. The predicates
+ * are tested in order and testing stops at the first one that fails.
+ */
+public class Conjunction implements Predicate {
+    private Predicate[] predicates;
+
+    public Conjunction(List<Predicate> predicates) {
+        this.predicates = predicates.toArray(new Predicate[0]);
+    }
+
+    @Override
+    public boolean test(List<Column> columns, int row) throws RuntimeException {
+        for (Predicate p : predicates) {
+            if (!p.test(columns, row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Filters the rows by each predicate in turn, so a predicate only sees the rows every
+     *  predicate before it kept, just like testing them one row at a time. */
+    @Override
+    public int filter(List<Column> columns, int[] rows, int count) throws RuntimeException {
+        for (int p = 0; p < predicates.length && count > 0; p++) {
+            count = predicates[p].filter(columns, rows, count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,21 @@
+package db.expressions;
+
+import db.table.RCTable.Column;
+
+import java.util.List;
+
+/**
+ * A column expression bound to the columns of a table. Column references are
+ * resolved to ordinal positions and operators are looked up when the
+ * expression is bound, so evaluating it does no parsing or name lookups.
+ */
+public interface Expression {
+    /** Returns the name of the column this expression produces. */
+    String name();
+
+    /** Returns the type of the column this expression produces. */
+    String type();
+
+    /** Evaluates this expression over the given columns and returns the resulting column. */
+    Column evaluate(List<Column> columns) throws RuntimeException;
+}
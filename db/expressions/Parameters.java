@@ -0,0 +1,36 @@
+package db.expressions;
+
+import db.literals.Literal;
+
+/**
+ * Helpers for the ? placeholders of prepared statements. Placeholders stand
+ * for literals and are numbered in the order they appear in the statement.
+ */
+public class Parameters {
+    public static final String PLACEHOLDER = "?";
+    public static final String[] NONE = new String[0];
+
+    /** Returns whether text is a placeholder. */
+    public static boolean isPlaceholder(String text) {
+        return PLACEHOLDER.equals(text);
+    }
+
+    /** Returns the literal bound to the placeholder numbered index. */
+    public static String bind(String[] values, int index) throws RuntimeException {
+        if (index >= values.length) {
+            throw new RuntimeException(String.format("ERROR: No value bound to parameter %d!", index + 1));
+        }
+        if (!Literal.isLiteral(values[index])) {
+            throw new RuntimeException(String.format("ERROR: Parameter %d is not a literal!", index + 1));
+        }
+        return values[index];
+    }
+
+    /** Throws if the number of values doesn't match the number of placeholders. */
+    public static void check(int expected, String[] values) throws RuntimeException {
+        if (expected != values.length) {
+            throw new RuntimeException(String.format("ERROR: Expected %d parameters but got %d!",
+                    expected, values.length));
+        }
+    }
+}
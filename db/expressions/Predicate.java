@@ -0,0 +1,25 @@
+package db.expressions;
+
+import db.table.RCTable.Column;
+
+import java.util.List;
+
+/**
+ * A condition bound to the columns of a table, tested one row at a time.
+ */
+public interface Predicate {
+    /** Returns whether the row at position row of columns satisfies this predicate. */
+    boolean test(List<Column> columns, int row) throws RuntimeException;
+
+    /** Keeps the positions among the first count of rows whose row of columns satisfies this
+     *  predicate, in order, and returns how many it kept. */
+    default int filter(List<Column> columns, int[] rows, int count) throws RuntimeException {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (test(columns, rows[i])) {
+                rows[kept++] = rows[i];
+            }
+        }
+        return kept;
+    }
+}
@@ -37,8 +37,18 @@ public class FloatLiteral implements Literal {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return Double.hashCode(object);
+    }
+
     @Override
     public boolean isZero() {
-        return Math.abs(object - 0.0) < epsilon;
+        return isZero(object);
+    }
+
+    /** Returns whether x is close enough to zero to be treated as zero. */
+    public static boolean isZero(double x) {
+        return Math.abs(x - 0.0) < epsilon;
     }
 }
@@ -37,6 +37,12 @@ public class IntLiteral implements Literal {
         return false;
     }
 
+    /** Hashes the value as a double so equal ints and floats hash the same. */
+    @Override
+    public int hashCode() {
+        return Double.hashCode(object);
+    }
+
     @Override
     public boolean isZero() {
         if (object == 0) {
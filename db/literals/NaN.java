@@ -5,6 +5,7 @@ package db.literals;
  */
 public class NaN implements Literal {
     public static final String default_type = "NaN";
+    public static final int HASH = default_type.hashCode();
     private static final String object = "NaN";
     private String type;
 
@@ -44,6 +45,11 @@ public class NaN implements Literal {
         return false;
     }
 
+    @Override
+    public int hashCode() {
+        return HASH;
+    }
+
     @Override
     public boolean isZero() {
         return false;
@@ -35,6 +35,11 @@ public class StringLiteral implements Literal {
         return ((StringLiteral) obj).getObject().equals(this.object);
     }
 
+    @Override
+    public int hashCode() {
+        return object.hashCode();
+    }
+
     @Override
     public boolean isZero() {
         return false;
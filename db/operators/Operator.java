@@ -1,5 +1,10 @@
 package db.operators;
+import db.literals.FloatLiteral;
+import db.literals.IntLiteral;
 import db.literals.Literal;
+import db.literals.NOVALUE;
+import db.literals.NaN;
+import db.literals.StringLiteral;
 import db.operators.arithmetic.Divide;
 import db.operators.arithmetic.Multiply;
 import db.operators.arithmetic.Plus;
@@ -13,34 +18,53 @@ public interface Operator {
     Object operate(Literal a, Literal b);
 
     default boolean validInputs(Literal a, Literal b) {
-        boolean sameType = a.getType().equals(b.getType());
-        boolean areNumbers =  (a.getType().equals("float") && b.getType().equals("int"));
-        areNumbers = areNumbers || (a.getType().equals("int") && b.getType().equals("float"));
-        return sameType || areNumbers;
+        String aType = a.getType();
+        String bType = b.getType();
+        return aType.equals(bType) || isNumberType(aType) && isNumberType(bType);
     }
 
+    /** Returns whether type is int or float. */
+    static boolean isNumberType(String type) {
+        return type.equals(IntLiteral.type) || type.equals(FloatLiteral.type);
+    }
+
+    /** Returns whether a is NOVALUE. */
+    default boolean isNOVALUE(Literal a) {
+        return a instanceof NOVALUE;
+    }
+
+    /** Returns whether a is a NaN that isn't a string or a float holding NaN. */
+    default boolean isNaN(Literal a) {
+        if (a instanceof FloatLiteral) {
+            return Double.isNaN((Double) a.getObject());
+        }
+        return a instanceof NaN && !a.getType().equals(StringLiteral.type);
+    }
+
+    /** Returns the operator written op, or null if there is none. Operators hold no state,
+     *  so every call returns the same instance. */
     static Operator getOperator(String op) {
         switch (op) {
             case "+":
-                return new Plus();
+                return Plus.INSTANCE;
             case "-":
-                return new Subtract();
+                return Subtract.INSTANCE;
             case "*":
-                return new Multiply();
+                return Multiply.INSTANCE;
             case "/":
-                return new Divide();
+                return Divide.INSTANCE;
             case "==":
-                return new Equal();
+                return Equal.INSTANCE;
             case "!=":
-                return new NotEqual();
+                return NotEqual.INSTANCE;
             case "<":
-                return new LessThan();
+                return LessThan.INSTANCE;
             case ">":
-                return new GreaterThan();
+                return GreaterThan.INSTANCE;
             case "<=":
-                return new LessThanEqual();
+                return LessThanEqual.INSTANCE;
             case ">=":
-                return new GreaterThanEqual();
+                return GreaterThanEqual.INSTANCE;
             default:
                 return null;
         }
@@ -1,9 +1,6 @@
 package db.operators.arithmetic;
 
 import db.literals.Literal;
-import db.literals.NOVALUE;
-import db.literals.NaN;
-import db.literals.StringLiteral;
 import db.operators.Operator;
 
 /**
@@ -13,13 +10,51 @@ public interface ArithmeticOperator extends Operator {
     @Override
     Literal operate(Literal a, Literal b);
 
+    /** Applies this operator to two int values. */
+    int operate(int a, int b);
+
+    /** Applies this operator to two float values. */
+    double operate(double a, double b);
+
+    /** Applies this operator to the first length values of a and b, writing the results to
+     *  result. Each loop is a plain pass over the arrays without calls, which the JIT may
+     *  vectorize for some operators; nothing here depends on it doing so. */
+    void operate(int[] a, int[] b, int[] result, int length);
+
+    /** Applies this operator to the first length values of a and to b. */
+    void operate(int[] a, int b, int[] result, int length);
+
+    /** Applies this operator to the first length values of a and b. */
+    void operate(double[] a, double[] b, double[] result, int length);
+
+    /** Applies this operator to the first length values of a and to b. */
+    void operate(double[] a, double b, double[] result, int length);
+
+    /** Returns whether some right operand makes the result NaN, see undefinedFor. */
+    default boolean hasUndefinedResults() {
+        return false;
+    }
+
+    /** Returns whether the result is NaN because of the value of the right operand. */
+    default boolean undefinedFor(int b) {
+        return false;
+    }
+
+    /** Returns whether the result is NaN because of the value of the right operand. */
+    default boolean undefinedFor(double b) {
+        return false;
+    }
+
+    /** Applies this operator to two strings, or returns null if it isn't defined for strings. */
+    default String operate(String a, String b) {
+        return null;
+    }
+
     default boolean bothAreNOVALUE(Literal a, Literal b) {
-        return a.toString().equals(b.toString()) && a.toString().equals(NOVALUE.default_type);
+        return isNOVALUE(a) && isNOVALUE(b);
     }
 
     default boolean oneIsNaN(Literal a, Literal b) {
-        boolean notStrings = !(a.getType().equals(StringLiteral.type) || a.getType().equals(StringLiteral.type));
-        boolean areNaN = (a.toString().equals(NaN.default_type) || b.toString().equals(NaN.default_type));
-        return areNaN && notStrings;
+        return isNaN(a) || isNaN(b);
     }
 }
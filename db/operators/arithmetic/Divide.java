@@ -6,6 +6,11 @@ import db.literals.*;
  * Created by admohanraj on 2/23/17.
  */
 public class Divide implements ArithmeticOperator {
+    public static final Divide INSTANCE = new Divide();
+
+    private Divide() {
+    }
+
     @Override
     public Literal operate(Literal a, Literal b) {
         if (!validInputs(a, b)) {
@@ -42,4 +47,59 @@ public class Divide implements ArithmeticOperator {
                 return null;
         }
     }
+
+    @Override
+    public int operate(int a, int b) {
+        return a / b;
+    }
+
+    @Override
+    public double operate(double a, double b) {
+        return a / b;
+    }
+
+    @Override
+    public void operate(int[] a, int[] b, int[] result, int length) {
+        // A zero divisor gives NaN, which the caller marks, so it only has to not throw here.
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] / (b[i] == 0 ? 1 : b[i]);
+        }
+    }
+
+    @Override
+    public void operate(int[] a, int b, int[] result, int length) {
+        int divisor = b == 0 ? 1 : b;
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] / divisor;
+        }
+    }
+
+    @Override
+    public void operate(double[] a, double[] b, double[] result, int length) {
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] / b[i];
+        }
+    }
+
+    @Override
+    public void operate(double[] a, double b, double[] result, int length) {
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] / b;
+        }
+    }
+
+    @Override
+    public boolean hasUndefinedResults() {
+        return true;
+    }
+
+    @Override
+    public boolean undefinedFor(int b) {
+        return b == 0;
+    }
+
+    @Override
+    public boolean undefinedFor(double b) {
+        return FloatLiteral.isZero(b);
+    }
 }
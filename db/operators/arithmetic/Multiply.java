@@ -7,6 +7,11 @@ import db.operators.Operator;
  * Created by admohanraj on 2/23/17.
  */
 public class Multiply implements ArithmeticOperator {
+    public static final Multiply INSTANCE = new Multiply();
+
+    private Multiply() {
+    }
+
     @Override
     public Literal operate(Literal a, Literal b) {
         if (!validInputs(a, b)) {
@@ -43,4 +48,42 @@ public class Multiply implements ArithmeticOperator {
                 return null;
         }
     }
+
+    @Override
+    public int operate(int a, int b) {
+        return a * b;
+    }
+
+    @Override
+    public double operate(double a, double b) {
+        return a * b;
+    }
+
+    @Override
+    public void operate(int[] a, int[] b, int[] result, int length) {
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] * b[i];
+        }
+    }
+
+    @Override
+    public void operate(int[] a, int b, int[] result, int length) {
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] * b;
+        }
+    }
+
+    @Override
+    public void operate(double[] a, double[] b, double[] result, int length) {
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] * b[i];
+        }
+    }
+
+    @Override
+    public void operate(double[] a, double b, double[] result, int length) {
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] * b;
+        }
+    }
 }
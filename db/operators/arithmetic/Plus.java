@@ -7,6 +7,10 @@ import db.operators.Operator;
  * Created by admohanraj on 2/23/17.
  */
 public class Plus implements ArithmeticOperator {
+    public static final Plus INSTANCE = new Plus();
+
+    private Plus() {
+    }
 
     @Override
     public Literal operate(Literal a, Literal b) {
@@ -39,9 +43,52 @@ public class Plus implements ArithmeticOperator {
                 }
                 return new FloatLiteral((Double) a.getObject() + (Double) b.getObject());
             case StringLiteral.type:
-                return new StringLiteral(((StringLiteral) a).getObject() + ((StringLiteral) b).getObject());
+                return new StringLiteral(operate(((StringLiteral) a).getObject(), ((StringLiteral) b).getObject()));
             default:
                 return null;
         }
     }
+
+    @Override
+    public int operate(int a, int b) {
+        return a + b;
+    }
+
+    @Override
+    public double operate(double a, double b) {
+        return a + b;
+    }
+
+    @Override
+    public String operate(String a, String b) {
+        return a + b;
+    }
+
+    @Override
+    public void operate(int[] a, int[] b, int[] result, int length) {
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] + b[i];
+        }
+    }
+
+    @Override
+    public void operate(int[] a, int b, int[] result, int length) {
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] + b;
+        }
+    }
+
+    @Override
+    public void operate(double[] a, double[] b, double[] result, int length) {
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] + b[i];
+        }
+    }
+
+    @Override
+    public void operate(double[] a, double b, double[] result, int length) {
+        for (int i = 0; i < length; i++) {
+            result[i] = a[i] + b;
+        }
+    }
 }
@@ -1,9 +1,6 @@
 package db.operators.comparison;
 
 import db.literals.Literal;
-import db.literals.NOVALUE;
-import db.literals.NaN;
-import db.literals.StringLiteral;
 import db.operators.Operator;
 
 /**
@@ -13,11 +10,6 @@ public interface ComparisonOperator extends Operator {
     @Override
     Boolean operate(Literal a, Literal b);
 
-    default boolean isNOVALUE(Literal a) {
-        return a.toString().equals(NOVALUE.default_type);
-    }
-
-    default boolean isNaN(Literal a) {
-        return a.toString().equals(NaN.default_type) && !a.getType().equals(StringLiteral.type);
-    }
+    /** Returns whether this comparison holds given the sign of a compareTo style result. */
+    boolean holds(int comparison);
 }
@@ -6,6 +6,11 @@ import db.literals.Literal;
  * Created by admohanraj on 2/24/17.
  */
 public class Equal implements ComparisonOperator {
+    public static final Equal INSTANCE = new Equal();
+
+    private Equal() {
+    }
+
     @Override
     public Boolean operate(Literal a, Literal b) {
         if (!validInputs(a, b)) {
@@ -19,4 +24,9 @@ public class Equal implements ComparisonOperator {
         // Performs the correct operation based upon type.
         return a.equals(b);
     }
+
+    @Override
+    public boolean holds(int comparison) {
+        return comparison == 0;
+    }
 }
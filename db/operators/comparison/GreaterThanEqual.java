@@ -6,12 +6,22 @@ import db.literals.Literal;
  * Created by admohanraj on 2/28/17.
  */
 public class GreaterThanEqual implements ComparisonOperator {
+    public static final GreaterThanEqual INSTANCE = new GreaterThanEqual();
+
+    private GreaterThanEqual() {
+    }
+
     @Override
     public Boolean operate(Literal a, Literal b) {
         if (isNOVALUE(a) || isNOVALUE(b)) {
             return false;
         }
         
-        return (new Equal()).operate(a, b) || (new GreaterThan()).operate(a, b);
+        return Equal.INSTANCE.operate(a, b) || GreaterThan.INSTANCE.operate(a, b);
+    }
+
+    @Override
+    public boolean holds(int comparison) {
+        return comparison >= 0;
     }
 }
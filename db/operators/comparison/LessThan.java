@@ -9,6 +9,11 @@ import db.literals.StringLiteral;
  * Created by admohanraj on 2/28/17.
  */
 public class LessThan implements ComparisonOperator {
+    public static final LessThan INSTANCE = new LessThan();
+
+    private LessThan() {
+    }
+
     @Override
     public Boolean operate(Literal a, Literal b) {
         if (!validInputs(a, b)) {
@@ -43,4 +48,9 @@ public class LessThan implements ComparisonOperator {
                 return null;
         }
     }
+
+    @Override
+    public boolean holds(int comparison) {
+        return comparison < 0;
+    }
 }
@@ -6,6 +6,11 @@ import db.literals.Literal;
  * Created by admohanraj on 2/28/17.
  */
 public class LessThanEqual implements ComparisonOperator {
+    public static final LessThanEqual INSTANCE = new LessThanEqual();
+
+    private LessThanEqual() {
+    }
+
     @Override
     public Boolean operate(Literal a, Literal b) {
 
@@ -13,6 +18,11 @@ public class LessThanEqual implements ComparisonOperator {
             return false;
         }
 
-        return (new Equal()).operate(a, b) || (new LessThan()).operate(a, b);
+        return Equal.INSTANCE.operate(a, b) || LessThan.INSTANCE.operate(a, b);
+    }
+
+    @Override
+    public boolean holds(int comparison) {
+        return comparison <= 0;
     }
 }
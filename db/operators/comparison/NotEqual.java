@@ -6,12 +6,22 @@ import db.literals.Literal;
  * Created by admohanraj on 2/28/17.
  */
 public class NotEqual implements ComparisonOperator {
+    public static final NotEqual INSTANCE = new NotEqual();
+
+    private NotEqual() {
+    }
+
     @Override
     public Boolean operate(Literal a, Literal b) {
         if (isNOVALUE(a) || isNOVALUE(b)) {
             return false;
         }
 
-        return !(new Equal()).operate(a, b);
+        return !Equal.INSTANCE.operate(a, b);
+    }
+
+    @Override
+    public boolean holds(int comparison) {
+        return comparison != 0;
     }
 }
@@ -0,0 +1,387 @@
+package db.table.RCTable;
+
+import db.literals.FloatLiteral;
+import db.literals.IntLiteral;
+import db.literals.Literal;
+import db.literals.NOVALUE;
+import db.operators.arithmetic.ArithmeticOperator;
+import db.operators.arithmetic.Divide;
+import db.operators.arithmetic.Plus;
+
+import java.util.Arrays;
+
+/**
+ * The running state of one aggregate function for every group of a GroupTable.
+ * Groups are numbered from zero in the order they appear. NOVALUE items are
+ * skipped, so a group without any value aggregates to NOVALUE (count gives 0),
+ * and NaN follows the arithmetic operators: any NaN makes a sum or avg NaN,
+ * and NaN is the greatest item for min and max.
+ */
+abstract class Accumulator {
+    private static final ArithmeticOperator PLUS = Plus.INSTANCE;
+    private static final ArithmeticOperator DIVIDE = Divide.INSTANCE;
+
+    // State of a sum or avg group.
+    private static final byte NONE = 0;
+    private static final byte SOME = 1;
+    private static final byte NAN = 2;
+
+    protected int groups;
+
+    /** Returns an empty accumulator of function over items of the given column type, or
+     *  over every row if column is null. */
+    static Accumulator make(String function, Column column) throws RuntimeException {
+        switch (function) {
+            case "count":
+                return new Count();
+            case "sum":
+                numeric(function, column);
+                return column instanceof IntColumn ? new IntSum() : new FloatSum();
+            case "avg":
+                numeric(function, column);
+                return new Average();
+            case "min":
+                return new Extreme(column.type(), 1);
+            case "max":
+                return new Extreme(column.type(), -1);
+            default:
+                throw new RuntimeException(String.format("ERROR: %s is not an aggregate!", function));
+        }
+    }
+
+    /** Fails unless column holds ints or floats. */
+    private static void numeric(String function, Column column) throws RuntimeException {
+        if (!(column instanceof NumericColumn)) {
+            throw new RuntimeException(String.format("ERROR: %s needs an int or float column!", function));
+        }
+    }
+
+    /** Returns an empty accumulator of the same function and type. */
+    abstract Accumulator empty();
+
+    /** Returns the type of the column this accumulator produces. */
+    abstract String type();
+
+    /** Makes room for the state of one more group. */
+    void addGroup() {
+        if (groups == capacity()) {
+            grow(Math.max(NumericColumn.DEFAULT_CAPACITY, groups * 2));
+        }
+        groups++;
+    }
+
+    /** Returns how many groups the state arrays can hold. */
+    protected abstract int capacity();
+
+    /** Grows the state arrays to hold capacity groups. */
+    protected abstract void grow(int capacity);
+
+    /** Adds the first count items of column to the groups in groupOf, row by row. Column is
+     *  null for count(*). */
+    abstract void add(int[] groupOf, Column column, int count);
+
+    /** Folds the state of group otherGroup of other, an accumulator made by empty(), into
+     *  group. */
+    abstract void merge(int group, Accumulator other, int otherGroup);
+
+    /** Returns a column called name holding the result of every group. */
+    abstract Column result(String name);
+
+    /** Counts items that aren't NOVALUE, or rows for count(*). */
+    private static class Count extends Accumulator {
+        private int[] counts = new int[0];
+
+        @Override
+        Accumulator empty() {
+            return new Count();
+        }
+
+        @Override
+        String type() {
+            return IntLiteral.type;
+        }
+
+        @Override
+        protected int capacity() {
+            return counts.length;
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        @Override
+        void add(int[] groupOf, Column column, int count) {
+            for (int i = 0; i < count; i++) {
+                if (column == null || !column.isNOVALUE(i)) {
+                    counts[groupOf[i]]++;
+                }
+            }
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            counts[group] += ((Count) other).counts[otherGroup];
+        }
+
+        @Override
+        Column result(String name) {
+            IntColumn column = new IntColumn(name, groups);
+            for (int g = 0; g < groups; g++) {
+                column.addInt(counts[g]);
+            }
+            return column;
+        }
+    }
+
+    /** Sums an int column with int arithmetic. */
+    private static class IntSum extends Accumulator {
+        private int[] sums = new int[0];
+        private byte[] states = new byte[0];
+
+        @Override
+        Accumulator empty() {
+            return new IntSum();
+        }
+
+        @Override
+        String type() {
+            return IntLiteral.type;
+        }
+
+        @Override
+        protected int capacity() {
+            return sums.length;
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            sums = Arrays.copyOf(sums, capacity);
+            states = Arrays.copyOf(states, capacity);
+        }
+
+        @Override
+        void add(int[] groupOf, Column column, int count) {
+            IntColumn ints = (IntColumn) column;
+            for (int i = 0; i < count; i++) {
+                int g = groupOf[i];
+                if (ints.isNOVALUE(i)) {
+                    continue;
+                } else if (ints.isNaN(i)) {
+                    states[g] = NAN;
+                } else if (states[g] != NAN) {
+                    sums[g] = PLUS.operate(sums[g], ints.getInt(i));
+                    states[g] = SOME;
+                }
+            }
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            IntSum o = (IntSum) other;
+            if (o.states[otherGroup] == NAN) {
+                states[group] = NAN;
+            } else if (o.states[otherGroup] == SOME && states[group] != NAN) {
+                sums[group] = PLUS.operate(sums[group], o.sums[otherGroup]);
+                states[group] = SOME;
+            }
+        }
+
+        @Override
+        Column result(String name) {
+            IntColumn column = new IntColumn(name, groups);
+            for (int g = 0; g < groups; g++) {
+                if (states[g] == NONE) {
+                    column.addNOVALUE();
+                } else if (states[g] == NAN) {
+                    column.addNaN();
+                } else {
+                    column.addInt(sums[g]);
+                }
+            }
+            return column;
+        }
+    }
+
+    /** Sums a float column with float arithmetic. */
+    private static class FloatSum extends Accumulator {
+        protected double[] sums = new double[0];
+        protected byte[] states = new byte[0];
+
+        @Override
+        Accumulator empty() {
+            return new FloatSum();
+        }
+
+        @Override
+        String type() {
+            return FloatLiteral.type;
+        }
+
+        @Override
+        protected int capacity() {
+            return sums.length;
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            sums = Arrays.copyOf(sums, capacity);
+            states = Arrays.copyOf(states, capacity);
+        }
+
+        /** Adds the item at position i of column to group g, returning whether it was a value. */
+        protected boolean add(int g, NumericColumn column, int i) {
+            if (column.isNOVALUE(i)) {
+                return false;
+            } else if (column.isNaN(i)) {
+                states[g] = NAN;
+            } else if (states[g] != NAN) {
+                sums[g] = PLUS.operate(sums[g], column.getDouble(i));
+                states[g] = SOME;
+            }
+            return true;
+        }
+
+        @Override
+        void add(int[] groupOf, Column column, int count) {
+            NumericColumn numbers = (NumericColumn) column;
+            for (int i = 0; i < count; i++) {
+                add(groupOf[i], numbers, i);
+            }
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            FloatSum o = (FloatSum) other;
+            if (o.states[otherGroup] == NAN) {
+                states[group] = NAN;
+            } else if (o.states[otherGroup] == SOME && states[group] != NAN) {
+                sums[group] = PLUS.operate(sums[group], o.sums[otherGroup]);
+                states[group] = SOME;
+            }
+        }
+
+        @Override
+        Column result(String name) {
+            FloatColumn column = new FloatColumn(name, groups);
+            for (int g = 0; g < groups; g++) {
+                if (states[g] == NONE) {
+                    column.addNOVALUE();
+                } else if (states[g] == NAN) {
+                    column.addNaN();
+                } else {
+                    column.addDouble(sums[g]);
+                }
+            }
+            return column;
+        }
+    }
+
+    /** Averages an int or float column as a float sum divided by the number of values. */
+    private static class Average extends FloatSum {
+        private int[] counts = new int[0];
+
+        @Override
+        Accumulator empty() {
+            return new Average();
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            super.grow(capacity);
+            counts = Arrays.copyOf(counts, capacity);
+        }
+
+        @Override
+        void add(int[] groupOf, Column column, int count) {
+            NumericColumn numbers = (NumericColumn) column;
+            for (int i = 0; i < count; i++) {
+                if (add(groupOf[i], numbers, i)) {
+                    counts[groupOf[i]]++;
+                }
+            }
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            super.merge(group, other, otherGroup);
+            counts[group] += ((Average) other).counts[otherGroup];
+        }
+
+        @Override
+        Column result(String name) {
+            FloatColumn column = new FloatColumn(name, groups);
+            for (int g = 0; g < groups; g++) {
+                if (states[g] == NONE) {
+                    column.addNOVALUE();
+                } else if (states[g] == NAN) {
+                    column.addNaN();
+                } else {
+                    column.addDouble(DIVIDE.operate(sums[g], (double) counts[g]));
+                }
+            }
+            return column;
+        }
+    }
+
+    /** Keeps the least item of each group for min, or the greatest for max. */
+    private static class Extreme extends Accumulator {
+        private String type;
+        private int sign;
+        private Literal[] best = new Literal[0];
+
+        /** Keeps the least item if sign is 1, or the greatest if it is -1. */
+        Extreme(String type, int sign) {
+            this.type = type;
+            this.sign = sign;
+        }
+
+        @Override
+        Accumulator empty() {
+            return new Extreme(type, sign);
+        }
+
+        @Override
+        String type() {
+            return type;
+        }
+
+        @Override
+        protected int capacity() {
+            return best.length;
+        }
+
+        @Override
+        protected void grow(int capacity) {
+            best = Arrays.copyOf(best, capacity);
+        }
+
+        @Override
+        void add(int[] groupOf, Column column, int count) {
+            for (int i = 0; i < count; i++) {
+                int g = groupOf[i];
+                if (!column.isNOVALUE(i) && (best[g] == null || sign * column.compareItem(i, best[g]) < 0)) {
+                    best[g] = column.getItem(i);
+                }
+            }
+        }
+
+        @Override
+        void merge(int group, Accumulator other, int otherGroup) {
+            Literal item = ((Extreme) other).best[otherGroup];
+            if (item != null && (best[group] == null || sign * Column.compareLiterals(item, best[group]) < 0)) {
+                best[group] = item;
+            }
+        }
+
+        @Override
+        Column result(String name) {
+            Column column = Column.make(name, type);
+            for (int g = 0; g < groups; g++) {
+                column.addItem(best[g] == null ? new NOVALUE(type) : best[g]);
+            }
+            return column;
+        }
+    }
+}
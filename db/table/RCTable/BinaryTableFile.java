@@ -0,0 +1,536 @@
+package db.table.RCTable;
+
+import db.literals.FloatLiteral;
+import db.literals.IntLiteral;
+import db.literals.NOVALUE;
+import db.literals.NaN;
+import db.literals.StringLiteral;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads and writes tables in a binary columnar format. The file starts with a magic
+ * number that a text .tbl file can't start with, then the number of columns and the
+ * name and type of each column. The rows follow in one or more segments: each segment
+ * holds its number of rows and a block for each column. Int and float blocks store
+ * their markers, if they have any, and then all of their values, so they are read back
+ * in bulk. String blocks store the dictionary of the strings in the block, as UTF-8 bytes,
+ * and then the code of each item, with the same negative codes for NOVALUE and NaN as a
+ * StringColumn. Every block is followed by the zone map of its rows, see ZoneMap.pieces,
+ * so a loaded table doesn't have to build it again. Files before the fourth version have
+ * no zone maps and files before the third store a marker and the string of each item
+ * instead of a dictionary, and segments appended to an older file keep its layout. Rows
+ * added to a stored table are appended as a new segment, and compacting the file rewrites
+ * it with a single segment.
+ */
+public class BinaryTableFile {
+    private static final byte[] MAGIC = {0, 'R', 'C', 'T'};
+    private static final byte VERSION = 4;
+    private static final byte DICTIONARY_VERSION = 3;
+    private static final byte PLAIN_STRINGS_VERSION = 2;
+    private static final byte SINGLE_SEGMENT_VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private static final byte NO_MARKERS = 0;
+    private static final byte HAS_MARKERS = 1;
+
+    /** Returns whether the file at path is in the binary format. */
+    public static boolean isBinary(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer start = ByteBuffer.allocate(MAGIC.length);
+            while (start.hasRemaining() && channel.read(start) > 0) {
+                continue;
+            }
+            return !start.hasRemaining() && Arrays.equals(start.array(), MAGIC);
+        }
+    }
+
+    /** Writes table to the file at path as a single segment, replacing anything that was there. */
+    public static void write(RCTable table, Path path) throws IOException {
+        try (SegmentWriter writer = new SegmentWriter(path, table.columns(), BUFFER_SIZE)) {
+            writer.write(table);
+        }
+    }
+
+    /** Appends the rows of table from position from onwards as a new segment to the file at
+     *  path, which must hold a table with the same columns. */
+    public static void append(RCTable table, int from, Path path) throws IOException {
+        byte version;
+        try (SegmentReader reader = new SegmentReader(path, MAGIC.length + 1 + 4)) {
+            version = reader.version;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            Output out = new Output(channel, BUFFER_SIZE);
+            writeSegment(out, table, from, table.numRows(), from, version);
+            out.flush();
+        }
+    }
+
+    /** Writes the rows of table in [from, to) as a segment of a file of the given version,
+     *  where the segment starts at position start. */
+    private static void writeSegment(Output out, RCTable table, int from, int to, int start, byte version)
+            throws IOException {
+        out.reserve(4);
+        out.buffer.putInt(to - from);
+        for (Column column : table.columns()) {
+            if (column instanceof StringColumn && version >= DICTIONARY_VERSION) {
+                writeDictionaryBlock(out, (StringColumn) column, from, to);
+            } else {
+                writeBlock(out, column, from, to);
+            }
+            if (version >= VERSION) {
+                int[] pieces = ZoneMap.supports(column) ? ZoneMap.pieces(column, from, to, start) : new int[0];
+                out.reserve(4);
+                out.buffer.putInt(pieces.length);
+                out.ints(pieces, 0, pieces.length);
+            }
+        }
+    }
+
+    /** Writes the block of the items of a string column in [from, to) with a dictionary of
+     *  only the strings in that range. */
+    private static void writeDictionaryBlock(Output out, StringColumn column, int from, int to) throws IOException {
+        Dictionary dictionary = column.dictionary();
+        int[] codes = column.codes();
+        int[] local = new int[to - from];
+        Dictionary used = new Dictionary();
+        for (int i = from; i < to; i++) {
+            int code = codes[i];
+            local[i - from] = code < 0 ? code : used.code(dictionary.value(code));
+        }
+
+        out.reserve(4);
+        out.buffer.putInt(used.size());
+        for (int code = 0; code < used.size(); code++) {
+            out.string(used.value(code));
+        }
+        out.ints(local, 0, local.length);
+    }
+
+    /** Writes the block of the items of column in [from, to). */
+    private static void writeBlock(Output out, Column column, int from, int to) throws IOException {
+        if (column instanceof NumericColumn) {
+            byte[] markers = ((NumericColumn) column).markers();
+            out.reserve(1);
+            out.buffer.put(markers == null ? NO_MARKERS : HAS_MARKERS);
+            if (markers != null) {
+                out.bytes(markers, from, to - from);
+            }
+        }
+
+        if (column instanceof IntColumn) {
+            out.ints(((IntColumn) column).values(), from, to);
+        } else if (column instanceof FloatColumn) {
+            out.doubles(((FloatColumn) column).values(), from, to);
+        } else {
+            for (int i = from; i < to; i++) {
+                out.reserve(1);
+                if (column.isNOVALUE(i)) {
+                    out.buffer.put(NumericColumn.NOVALUE_MARKER);
+                } else if (column.isNaN(i)) {
+                    out.buffer.put(NumericColumn.NAN_MARKER);
+                } else {
+                    out.buffer.put(NumericColumn.VALUE);
+                    out.string(((StringLiteral) column.getItem(i)).getObject());
+                }
+            }
+        }
+    }
+
+    /** Reads the table stored in the binary file at path, joining its segments. The table
+     *  remembers how much of the file it was read from, see PersistedState. */
+    public static RCTable read(Path path) throws IOException {
+        try (SegmentReader reader = new SegmentReader(path, BUFFER_SIZE)) {
+            RCTable table = reader.next();
+            if (table == null) {
+                table = new RCTable(reader.names, reader.types);
+            } else if (reader.zones != null) {
+                table.restoreZones(reader.zones, 0);
+            }
+            for (RCTable segment = reader.next(); segment != null; segment = reader.next()) {
+                int start = table.numRows();
+                table.append(segment);
+                if (reader.zones != null) {
+                    table.restoreZones(reader.zones, start);
+                }
+            }
+            table.setPersisted(new PersistedState(table.numRows(), reader.channel.size(), true, reader.segments));
+            return table;
+        }
+    }
+
+    /**
+     * Writes tables with the same columns one after another as the segments of a new file,
+     * so a table too big to keep in memory can be written a batch at a time.
+     */
+    static class SegmentWriter implements Closeable {
+        private FileChannel channel;
+        private Output out;
+        private int rows;
+
+        /** Creates the file at path, replacing anything that was there, for tables with the
+         *  names and types of columns, buffering bufferSize bytes at a time. */
+        SegmentWriter(Path path, List<Column> columns, int bufferSize) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.WRITE,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+            out = new Output(channel, bufferSize);
+            out.bytes(MAGIC, 0, MAGIC.length);
+            out.reserve(1 + 4);
+            out.buffer.put(VERSION);
+            out.buffer.putInt(columns.size());
+            for (Column column : columns) {
+                out.string(column.name());
+                out.string(column.type());
+            }
+        }
+
+        /** Writes every row of table as the next segment. */
+        void write(RCTable table) throws IOException {
+            writeSegment(out, table, 0, table.numRows(), rows, VERSION);
+            rows += table.numRows();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the segments of a binary file one at a time.
+     */
+    static class SegmentReader implements Closeable {
+        private FileChannel channel;
+        private Input in;
+        private byte version;
+        private int headerRows;
+        private List<String> names = new ArrayList<>();
+        private List<String> types = new ArrayList<>();
+        private int segments;
+        private int rows;
+        private int[][] zones;
+
+        /** Opens the binary file at path and reads its header, buffering bufferSize bytes at
+         *  a time. */
+        SegmentReader(Path path, int bufferSize) throws IOException {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            try {
+                readHeader(bufferSize);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        private void readHeader(int bufferSize) throws IOException {
+            in = new Input(channel, bufferSize);
+            byte[] magic = new byte[MAGIC.length];
+            in.bytes(magic, MAGIC.length);
+            in.require(1 + 4);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IOException("Not a binary table file!");
+            }
+            version = in.buffer.get();
+            if (version < SINGLE_SEGMENT_VERSION || version > VERSION) {
+                throw new IOException("Not a binary table file!");
+            }
+            int columnCount = in.buffer.getInt();
+            if (columnCount < 0) {
+                throw new IOException("Malformed binary table file!");
+            }
+
+            // The first version kept the row count of its only segment in the header.
+            if (version == SINGLE_SEGMENT_VERSION) {
+                in.require(4);
+                headerRows = in.buffer.getInt();
+            }
+
+            for (int c = 0; c < columnCount; c++) {
+                names.add(in.string());
+                types.add(in.string());
+            }
+        }
+
+        /** Returns the rows of the next segment, or null if every segment has been read. The
+         *  zone maps of its columns are left in zones, if the file has them. */
+        RCTable next() throws IOException {
+            if (version == SINGLE_SEGMENT_VERSION ? segments > 0 : !in.hasMore()) {
+                return null;
+            }
+            int rows = headerRows;
+            if (version != SINGLE_SEGMENT_VERSION) {
+                in.require(4);
+                rows = in.buffer.getInt();
+            }
+            if (rows < 0) {
+                throw new IOException("Malformed binary table file!");
+            }
+
+            List<Column> columns = new ArrayList<>();
+            zones = version >= VERSION ? new int[names.size()][] : null;
+            for (int c = 0; c < names.size(); c++) {
+                Column column = readColumn(in, names.get(c), types.get(c), rows, version);
+                columns.add(column);
+                if (zones != null) {
+                    zones[c] = readZones(column, rows);
+                }
+            }
+            this.rows += rows;
+            segments++;
+            return columns.isEmpty() ? new RCTable(names, types) : new RCTable(columns);
+        }
+
+        /** Reads the zone map stored after the block of column, which holds rows rows. */
+        private int[] readZones(Column column, int rows) throws IOException {
+            in.require(4);
+            int length = in.buffer.getInt();
+            if (length < 0 || length > 3 * (rows / ZoneMap.BLOCK_SIZE + 2)) {
+                throw new IOException("Malformed binary table file!");
+            }
+            int[] pieces = new int[length];
+            in.ints(pieces, length);
+            boolean valid = ZoneMap.supports(column) ? ZoneMap.valid(pieces, this.rows, rows) : length == 0;
+            if (!valid) {
+                throw new IOException("Malformed binary table file!");
+            }
+            return pieces;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /** Reads the block of a column called name of the given type from a file of the given version. */
+    private static Column readColumn(Input in, String name, String type, int rows, byte version) throws IOException {
+        if (type.equals(StringLiteral.type) && version >= DICTIONARY_VERSION) {
+            return readDictionaryBlock(in, name, rows);
+        }
+        switch (type) {
+            case IntLiteral.type: {
+                IntColumn column = new IntColumn(name, rows);
+                byte[] markers = readMarkers(in, rows);
+                in.ints(column.values(), rows);
+                column.setMarkers(markers, rows);
+                return column;
+            }
+            case FloatLiteral.type: {
+                FloatColumn column = new FloatColumn(name, rows);
+                byte[] markers = readMarkers(in, rows);
+                in.doubles(column.values(), rows);
+                column.setMarkers(markers, rows);
+                return column;
+            }
+            case StringLiteral.type: {
+                Column column = Column.make(name, type);
+                column.reserve(rows);
+                for (int i = 0; i < rows; i++) {
+                    in.require(1);
+                    byte marker = in.buffer.get();
+                    if (marker == NumericColumn.NOVALUE_MARKER) {
+                        column.addItem(new NOVALUE(type));
+                    } else if (marker == NumericColumn.NAN_MARKER) {
+                        column.addItem(new NaN(type));
+                    } else {
+                        column.addItem(new StringLiteral(in.string()));
+                    }
+                }
+                return column;
+            }
+            default:
+                throw new IOException("Unsupported column type in binary table file!");
+        }
+    }
+
+    /** Reads the dictionary encoded block of a string column called name. */
+    private static StringColumn readDictionaryBlock(Input in, String name, int rows) throws IOException {
+        in.require(4);
+        int size = in.buffer.getInt();
+        if (size < 0 || size > rows) {
+            throw new IOException("Malformed binary table file!");
+        }
+        String[] values = new String[Math.max(size, 1)];
+        for (int code = 0; code < size; code++) {
+            values[code] = in.string();
+        }
+
+        int[] codes = new int[Math.max(rows, 1)];
+        in.ints(codes, rows);
+        for (int i = 0; i < rows; i++) {
+            if (codes[i] < StringColumn.NAN_CODE || codes[i] >= size) {
+                throw new IOException("Malformed binary table file!");
+            }
+        }
+        return new StringColumn(name, new Dictionary(values, size), false, codes, rows);
+    }
+
+    /** Reads the markers of a numeric column block, or returns null if it has none. */
+    private static byte[] readMarkers(Input in, int rows) throws IOException {
+        in.require(1);
+        if (in.buffer.get() == NO_MARKERS) {
+            return null;
+        }
+        byte[] markers = new byte[Math.max(rows, 1)];
+        in.bytes(markers, rows);
+        return markers;
+    }
+
+    /** Buffers writes to a channel. */
+    private static class Output {
+        private FileChannel channel;
+        private ByteBuffer buffer;
+
+        Output(FileChannel channel, int bufferSize) {
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        /** Writes out everything buffered so far. */
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        /** Makes room for count more bytes in the buffer. */
+        void reserve(int count) throws IOException {
+            if (buffer.remaining() < count) {
+                flush();
+            }
+        }
+
+        void bytes(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (!buffer.hasRemaining()) {
+                    flush();
+                }
+                int count = Math.min(length, buffer.remaining());
+                buffer.put(bytes, offset, count);
+                offset += count;
+                length -= count;
+            }
+        }
+
+        void string(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            reserve(4);
+            buffer.putInt(bytes.length);
+            bytes(bytes, 0, bytes.length);
+        }
+
+        void ints(int[] values, int from, int to) throws IOException {
+            for (int i = from; i < to; ) {
+                reserve(Integer.BYTES);
+                int count = Math.min(to - i, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().put(values, i, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                i += count;
+            }
+        }
+
+        void doubles(double[] values, int from, int to) throws IOException {
+            for (int i = from; i < to; ) {
+                reserve(Double.BYTES);
+                int count = Math.min(to - i, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().put(values, i, count);
+                buffer.position(buffer.position() + count * Double.BYTES);
+                i += count;
+            }
+        }
+    }
+
+    /** Buffers reads from a channel. */
+    private static class Input {
+        private FileChannel channel;
+        private ByteBuffer buffer;
+
+        Input(FileChannel channel, int bufferSize) {
+            this.channel = channel;
+            buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.limit(0);
+        }
+
+        /** Makes sure at least count bytes are buffered, failing at the end of the file. */
+        void require(int count) throws IOException {
+            if (buffer.remaining() >= count) {
+                return;
+            }
+            buffer.compact();
+            while (buffer.position() < count) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("Binary table file ended early!");
+                }
+            }
+            buffer.flip();
+        }
+
+        /** Returns whether anything is left to read. */
+        boolean hasMore() throws IOException {
+            if (buffer.hasRemaining()) {
+                return true;
+            }
+            buffer.clear();
+            channel.read(buffer);
+            buffer.flip();
+            return buffer.hasRemaining();
+        }
+
+        void bytes(byte[] bytes, int length) throws IOException {
+            for (int offset = 0; offset < length; ) {
+                require(1);
+                int count = Math.min(length - offset, buffer.remaining());
+                buffer.get(bytes, offset, count);
+                offset += count;
+            }
+        }
+
+        String string() throws IOException {
+            require(4);
+            int length = buffer.getInt();
+            if (length < 0) {
+                throw new IOException("Malformed binary table file!");
+            }
+            byte[] bytes = new byte[length];
+            bytes(bytes, length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        void ints(int[] values, int length) throws IOException {
+            for (int i = 0; i < length; ) {
+                require(Integer.BYTES);
+                int count = Math.min(length - i, buffer.remaining() / Integer.BYTES);
+                buffer.asIntBuffer().get(values, i, count);
+                buffer.position(buffer.position() + count * Integer.BYTES);
+                i += count;
+            }
+        }
+
+        void doubles(double[] values, int length) throws IOException {
+            for (int i = 0; i < length; ) {
+                require(Double.BYTES);
+                int count = Math.min(length - i, buffer.remaining() / Double.BYTES);
+                buffer.asDoubleBuffer().get(values, i, count);
+                buffer.position(buffer.position() + count * Double.BYTES);
+                i += count;
+            }
+        }
+    }
+}
@@ -1,41 +1,56 @@
 package db.table.RCTable;
 
+import db.literals.FloatLiteral;
+import db.literals.IntLiteral;
 import db.literals.Literal;
-import db.operators.Operator;
+import db.literals.NOVALUE;
+import db.literals.NaN;
+import db.literals.StringLiteral;
 import db.operators.arithmetic.ArithmeticOperator;
+import db.operators.comparison.ComparisonOperator;
 
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.List;
 
 /**
  * Created by admohanraj on 2/16/17.
  * A column class represents one column in the table.
+ * Subclasses decide how the data is stored, int and float columns keep
+ * their data in primitive arrays and string columns are dictionary encoded.
  */
-public class Column {
+public abstract class Column {
+    public static final String INCOMPATIBLE_TYPES_ERROR = "ERROR: Incompatible types in comparison!";
+
     private String name;
     private String type;
-    private List<Literal> items;
 
     /** Create an empty column object called name. */
-    public Column(String name, String type) {
+    protected Column(String name, String type) {
         this.name = name;
         this.type = type;
-        items = new ArrayList<>();
     }
 
-    /** Create a column object called name with items as data points. */
-    public Column(String name, String type, List<Literal> items) {
-        this.name = name;
-        this.type = type;
-        this.items = new ArrayList<>(items);
+    /** Creates an empty column called name using the storage best suited to type. Tables
+     *  only hold int, float and string columns, so other types fail. */
+    public static Column make(String name, String type) {
+        switch (type) {
+            case IntLiteral.type:
+                return new IntColumn(name);
+            case FloatLiteral.type:
+                return new FloatColumn(name);
+            case StringLiteral.type:
+                return new StringColumn(name);
+            default:
+                throw new RuntimeException("ERROR: Unsupported type error!");
+        }
     }
 
     /** Create a column object called name with items as data points. */
-    public Column(String name, String type, Literal[] items) {
-        this.name = name;
-        this.type = type;
-        this.items = Arrays.asList(items);
+    public static Column make(String name, String type, List<Literal> items) {
+        Column column = make(name, type);
+        for (Literal item : items) {
+            column.addItem(item);
+        }
+        return column;
     }
 
     /** Returns the name of the column. */
@@ -49,28 +64,163 @@ public class Column {
     }
 
     /** Returns the item at position index in this column. */
-    public Literal getItem(int index) {
-        return items.get(index);
-    }
+    public abstract Literal getItem(int index);
 
     /** Appends item at last position in this column. */
-    public void addItem(Literal item) {
-        items.add(item);
+    public abstract void addItem(Literal item);
+
+    /** Appends the item at position index of source to this column. */
+    public void addItem(Column source, int index) {
+        addItem(source.getItem(index));
     }
 
-    /** Returns the data in the column, probably will delete later. */
-    public List<Literal> items() {
-        return items;
+    /** Appends every item of source, in order, to this column. */
+    public void addAll(Column source) {
+        reserve(length() + source.length());
+        for (int i = 0; i < source.length(); i++) {
+            addItem(source, i);
+        }
     }
 
-    /** Returns how many items are stored in this column. */
-    public int length() {
-        return items.size();
+    /** Returns a new column holding the items at the first count positions of selection. */
+    public Column select(int[] selection, int count) {
+        Column selected = make(name, type);
+        selected.reserve(count);
+        for (int i = 0; i < count; i++) {
+            selected.addItem(this, selection[i]);
+        }
+        return selected;
+    }
+
+    /** Makes room for at least capacity items. */
+    protected void reserve(int capacity) {
     }
 
+    /** Returns how many items are stored in this column. */
+    public abstract int length();
+
     /** Deletes all data stored in this column. */
-    public void clearData() {
-        items = new ArrayList<>();
+    public abstract void clearData();
+
+    /** Returns whether the item at position index is NOVALUE. */
+    public abstract boolean isNOVALUE(int index);
+
+    /** Returns whether the item at position index is NaN. */
+    public abstract boolean isNaN(int index);
+
+    /** Compares the item at position index with the item at otherIndex in other.
+     *  NaN is ordered after every other value and is equal to itself. */
+    public int compareItems(int index, Column other, int otherIndex) {
+        return compareLiterals(getItem(index), other.getItem(otherIndex));
+    }
+
+    /** Compares the item at position index with literal. */
+    public int compareItem(int index, Literal literal) {
+        return compareLiterals(getItem(index), literal);
+    }
+
+    /** Returns whether the item at position index satisfies the operator against
+     *  the item at otherIndex in other. NOVALUE never satisfies a comparison. */
+    public boolean satisfies(int index, ComparisonOperator operator, Column other, int otherIndex) {
+        if (isNOVALUE(index) || other.isNOVALUE(otherIndex)) {
+            return false;
+        }
+        return operator.holds(compareItems(index, other, otherIndex));
+    }
+
+    /** Returns whether the item at position index satisfies the operator against literal. */
+    public boolean satisfies(int index, ComparisonOperator operator, Literal literal) {
+        if (isNOVALUE(index) || literal instanceof NOVALUE) {
+            return false;
+        }
+        return operator.holds(compareItem(index, literal));
+    }
+
+    /** Keeps the positions among the first count of rows whose item satisfies operator
+     *  against literal, in order, and returns how many it kept. */
+    public int filter(int[] rows, int count, ComparisonOperator operator, Literal literal) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (satisfies(rows[i], operator, literal)) {
+                rows[kept++] = rows[i];
+            }
+        }
+        return kept;
+    }
+
+    /** Keeps the positions among the first count of rows whose item satisfies operator
+     *  against the item of other in the same row, in order, and returns how many it kept. */
+    public int filter(int[] rows, int count, ComparisonOperator operator, Column other) {
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            if (satisfies(rows[i], operator, other, rows[i])) {
+                rows[kept++] = rows[i];
+            }
+        }
+        return kept;
+    }
+
+    /** Returns a hash of the item at position index that agrees with itemEquals. */
+    public int hashItem(int index) {
+        return getItem(index).hashCode();
+    }
+
+    /** Returns whether the item at position index equals the item at otherIndex in other.
+     *  NOVALUE equals nothing and items of incompatible types are never equal. */
+    public boolean itemEquals(int index, Column other, int otherIndex) {
+        if (isNOVALUE(index) || other.isNOVALUE(otherIndex) || !comparable(this, other)) {
+            return false;
+        }
+        return compareItems(index, other, otherIndex) == 0;
+    }
+
+    /** Returns whether the items of the two columns can be compared with each other. */
+    static boolean comparable(Column a, Column b) {
+        return comparableTypes(a.type(), b.type());
+    }
+
+    /** Returns whether items of type a can be compared with items of type b. The NaN and
+     *  NOVALUE literals written in a query have no type of their own and compare with any. */
+    public static boolean comparableTypes(String a, String b) {
+        if (a.equals(NaN.default_type) || a.equals(NOVALUE.default_type)
+                || b.equals(NaN.default_type) || b.equals(NOVALUE.default_type)) {
+            return true;
+        }
+        return a.equals(b) || isNumberType(a) && isNumberType(b);
+    }
+
+    /** Returns whether type is int or float. */
+    private static boolean isNumberType(String type) {
+        return type.equals(IntLiteral.type) || type.equals(FloatLiteral.type);
+    }
+
+    /** Compares two literals the same way the comparison operators do. Literals of types
+     *  that can't be compared fail even if one of them is NaN. */
+    static int compareLiterals(Literal a, Literal b) {
+        if (!comparableTypes(a.getType(), b.getType())) {
+            throw new RuntimeException(INCOMPATIBLE_TYPES_ERROR);
+        }
+
+        boolean aNaN = a instanceof NaN;
+        boolean bNaN = b instanceof NaN;
+        if (aNaN || bNaN) {
+            return Boolean.compare(aNaN, bNaN);
+        }
+
+        if (a instanceof StringLiteral && b instanceof StringLiteral) {
+            return ((StringLiteral) a).getObject().compareTo(((StringLiteral) b).getObject());
+        }
+
+        if (isNumber(a) && isNumber(b)) {
+            return Double.compare(((Number) a.getObject()).doubleValue(), ((Number) b.getObject()).doubleValue());
+        }
+
+        throw new RuntimeException(INCOMPATIBLE_TYPES_ERROR);
+    }
+
+    /** Returns whether the literal holds an int or a float. */
+    static boolean isNumber(Literal literal) {
+        return literal instanceof IntLiteral || literal instanceof FloatLiteral;
     }
 
     /** Returns whether two columns are equal. */
@@ -84,12 +234,16 @@ public class Column {
         }
 
         Column c = (Column) obj;
-        if (!c.name.equals(this.name) || c.items.size() != this.items.size()) {
+        if (!c.name.equals(this.name) || c.length() != this.length()) {
             return false;
         }
 
-        for (int i = 0; i < items.size(); i++) {
-            if (!this.items.get(i).equals(c.items.get(i))) {
+        for (int i = 0; i < length(); i++) {
+            if (this.isNOVALUE(i) || c.isNOVALUE(i)) {
+                if (this.isNOVALUE(i) != c.isNOVALUE(i)) {
+                    return false;
+                }
+            } else if (!this.getItem(i).equals(c.getItem(i))) {
                 return false;
             }
         }
@@ -98,60 +252,17 @@ public class Column {
     }
 
     @Override
-    public Column clone() {
-        return new Column(this.name, this.type, this.items);
-    }
+    public abstract Column clone();
 
     /** Returns a new column that is the result of applying the operator to the two operands. */
-    public static Column evaluate(Column o1, Column o2, String opString, String alias) throws RuntimeException {
-
-        if (o1.length() != o2.length()) {
-            throw new RuntimeException("ERROR: Column size mismatch.");
-        }
-
-        ArithmeticOperator operator = (ArithmeticOperator) Operator.getOperator(opString);
-        if (operator == null) {
-            throw new RuntimeException("ERROR: Invalid operator.");
-        }
-
-        List<Literal> newColList = new ArrayList<>();
-        String type = "fail";
-        for (int i = 0; i < o1.length(); i++) {
-            Literal result = operator.operate(o1.getItem(i), o2.getItem(i));
-            if (result == null) {
-                throw new RuntimeException("ERROR: Operator failed!");
-            }
-
-            type = result.getType();
-            newColList.add(result);
-        }
-
-        return new Column(alias, type, newColList);
+    public static Column evaluate(Column o1, Column o2, ArithmeticOperator operator, String alias)
+            throws RuntimeException {
+        return Kernel.of(operator, o1.type(), o2.type()).apply(o1, o2, alias);
     }
 
     /** Returns a new column that is the result of applying the operator to the two operands. */
-    public static Column evaluate(Column o1, Literal o2, String opString, String alias) throws RuntimeException {
-        /*if (!o1.type().equals(o2.getType())) {
-            throw new RuntimeException("ERROR: Type mismatch between operators.");
-        }*/
-
-        ArithmeticOperator operator = (ArithmeticOperator) Operator.getOperator(opString);
-        if (operator == null) {
-            throw new RuntimeException("ERROR: Invalid operator.");
-        }
-
-        List<Literal> newColList = new ArrayList<>();
-        String type = "fail";
-        for (int i = 0; i < o1.length(); i++) {
-            Literal result = operator.operate(o1.getItem(i), o2);
-            if (result == null) {
-                throw new RuntimeException("ERROR: Operator failed!");
-            }
-
-            type = result.getType();
-            newColList.add(result);
-        }
-
-        return new Column(alias, type, newColList);
+    public static Column evaluate(Column o1, Literal o2, ArithmeticOperator operator, String alias)
+            throws RuntimeException {
+        return Kernel.of(operator, o1.type(), o2.getType()).apply(o1, o2, alias);
     }
 }
@@ -0,0 +1,122 @@
+package db.table.RCTable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The distinct strings of a string column, each numbered by a code in the order it was
+ * first added. A dictionary only ever grows, so a code always stands for the same string
+ * and columns selected from a column share its dictionary instead of copying it. The hash
+ * of every string is kept next to it, so hashing an item never reads the string.
+ */
+class Dictionary {
+    static final int ABSENT = -3;
+    private static final int CACHED_TRANSLATIONS = 4;
+
+    private String[] values;
+    private int[] hashes;
+    private Map<String, Integer> codes;
+    private int size;
+
+    // Translations of this dictionary's codes into the codes of a few other dictionaries.
+    private volatile Translation[] translations = new Translation[0];
+
+    /** Creates an empty dictionary. */
+    Dictionary() {
+        values = new String[NumericColumn.DEFAULT_CAPACITY];
+        hashes = new int[NumericColumn.DEFAULT_CAPACITY];
+        codes = new HashMap<>();
+    }
+
+    /** Creates a dictionary holding distinct values, coded in that order. */
+    Dictionary(String[] values, int size) {
+        this.values = values;
+        this.size = size;
+        hashes = new int[Math.max(size, 1)];
+        codes = new HashMap<>(size * 4 / 3 + 1);
+        for (int code = 0; code < size; code++) {
+            hashes[code] = values[code].hashCode();
+            codes.put(values[code], code);
+        }
+    }
+
+    /** Returns a copy of this dictionary that can grow on its own. */
+    Dictionary copy() {
+        return new Dictionary(Arrays.copyOf(values, Math.max(size, 1)), size);
+    }
+
+    /** Returns the number of strings in this dictionary. */
+    int size() {
+        return size;
+    }
+
+    /** Returns the string coded by code. */
+    String value(int code) {
+        return values[code];
+    }
+
+    /** Returns the hash of the string coded by code. */
+    int hash(int code) {
+        return hashes[code];
+    }
+
+    /** Returns the code of value, or ABSENT if it isn't in this dictionary. */
+    int find(String value) {
+        Integer code = codes.get(value);
+        return code == null ? ABSENT : code;
+    }
+
+    /** Returns the code of value, adding it if it isn't in this dictionary yet. */
+    int code(String value) {
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        if (size == values.length || size == hashes.length) {
+            int capacity = Math.max(size * 2, NumericColumn.DEFAULT_CAPACITY);
+            values = Arrays.copyOf(values, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        values[size] = value;
+        hashes[size] = value.hashCode();
+        codes.put(value, size);
+        return size++;
+    }
+
+    /** Returns the code in target of every string of this dictionary, or ABSENT for the
+     *  strings target doesn't have. A few translations are cached, and one is made again
+     *  once either dictionary has grown. */
+    int[] translation(Dictionary target) {
+        Translation[] cached = translations;
+        for (Translation t : cached) {
+            if (t.target == target && t.codes.length == size && t.targetSize == target.size) {
+                return t.codes;
+            }
+        }
+
+        int[] translated = new int[size];
+        for (int code = 0; code < size; code++) {
+            translated[code] = target.find(values[code]);
+        }
+
+        Translation[] updated = new Translation[Math.min(cached.length + 1, CACHED_TRANSLATIONS)];
+        updated[0] = new Translation(target, target.size, translated);
+        System.arraycopy(cached, 0, updated, 1, updated.length - 1);
+        translations = updated;
+        return translated;
+    }
+
+    /** The codes of a dictionary in target when it had targetSize strings. */
+    private static class Translation {
+        private final Dictionary target;
+        private final int targetSize;
+        private final int[] codes;
+
+        Translation(Dictionary target, int targetSize, int[] codes) {
+            this.target = target;
+            this.targetSize = targetSize;
+            this.codes = codes;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package db.table.RCTable;
+
+import db.expressions.Condition;
+import db.expressions.Predicate;
+
+import java.util.List;
+
+/**
+ * Passes on the rows of its input that satisfy a predicate. The conditions are bound
+ * once to the columns of the input and every batch is tested with them.
+ */
+class FilterOperator implements Operator {
+    private Operator input;
+    private Predicate predicate;
+    private int[] selection = new int[BATCH_SIZE];
+
+    private FilterOperator(Operator input, Predicate predicate) {
+        this.input = input;
+        this.predicate = predicate;
+    }
+
+    /** Returns an operator filtering input by conditions, or null if a condition doesn't
+     *  have a comparison operator. Without conditions the input is returned as it is. */
+    static Operator make(Operator input, List<Condition> conditions) throws RuntimeException {
+        if (conditions.isEmpty()) {
+            return input;
+        }
+        Predicate predicate = RCTable.bind(conditions, input.schema().columns());
+        return predicate == null ? null : new FilterOperator(input, predicate);
+    }
+
+    @Override
+    public RCTable schema() {
+        return input.schema();
+    }
+
+    @Override
+    public RCTable next() throws RuntimeException {
+        for (RCTable batch = input.next(); batch != null; batch = input.next()) {
+            if (selection.length < batch.numRows()) {
+                selection = new int[batch.numRows()];
+            }
+            for (int row = 0; row < batch.numRows(); row++) {
+                selection[row] = row;
+            }
+            int count = predicate.filter(batch.columns(), selection, batch.numRows());
+            if (count == batch.numRows()) {
+                return batch;
+            } else if (count > 0) {
+                return batch.select(selection, count);
+            }
+        }
+        return null;
+    }
+}
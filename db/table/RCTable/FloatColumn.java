@@ -0,0 +1,107 @@
+package db.table.RCTable;
+
+import db.literals.FloatLiteral;
+import db.literals.IntLiteral;
+import db.literals.Literal;
+
+import java.util.Arrays;
+
+/**
+ * A float column keeps its values in a double[] instead of boxed FloatLiterals.
+ */
+public class FloatColumn extends NumericColumn {
+    private double[] values;
+
+    /** Create an empty float column called name. */
+    public FloatColumn(String name) {
+        this(name, DEFAULT_CAPACITY);
+    }
+
+    /** Create an empty float column called name with room for capacity items. */
+    public FloatColumn(String name, int capacity) {
+        super(name, FloatLiteral.type);
+        values = new double[Math.max(capacity, 1)];
+    }
+
+    /** Appends value at last position in this column. */
+    public void addDouble(double value) {
+        // append may grow the array, so it must run before values is read.
+        int index = append(VALUE);
+        values[index] = value;
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return values[index];
+    }
+
+    /** Returns the value array, which may be longer than the column. */
+    double[] values() {
+        return values;
+    }
+
+    @Override
+    protected void ensureValueCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+        }
+    }
+
+    @Override
+    public Literal getItem(int index) {
+        Literal special = getSpecial(index);
+        if (special != null) {
+            return special;
+        }
+        return new FloatLiteral(values[index]);
+    }
+
+    @Override
+    public void addItem(Literal item) {
+        if (addSpecial(item)) {
+            return;
+        }
+        if (item instanceof FloatLiteral) {
+            addDouble(((FloatLiteral) item).getObject());
+        } else if (item instanceof IntLiteral) {
+            addDouble(((IntLiteral) item).getObject());
+        } else {
+            throw new RuntimeException("ERROR: Type mismatch in float column!");
+        }
+    }
+
+    @Override
+    public void addItem(Column source, int index) {
+        if (!(source instanceof NumericColumn) || source.isNOVALUE(index) || source.isNaN(index)) {
+            super.addItem(source, index);
+            return;
+        }
+        addDouble(((NumericColumn) source).getDouble(index));
+    }
+
+    @Override
+    public void addAll(Column source) {
+        if (!(source instanceof FloatColumn)) {
+            super.addAll(source);
+            return;
+        }
+        FloatColumn column = (FloatColumn) source;
+        ensureValueCapacity(length() + column.length());
+        int offset = copyMarkers(column);
+        System.arraycopy(column.values, 0, values, offset, column.length());
+    }
+
+    @Override
+    public void clearData() {
+        super.clearData();
+        values = new double[DEFAULT_CAPACITY];
+    }
+
+    @Override
+    public FloatColumn clone() {
+        FloatColumn copy = new FloatColumn(name(), 1);
+        copy.values = Arrays.copyOf(values, values.length);
+        copyMarkersInto(copy);
+        return copy;
+    }
+}
@@ -0,0 +1,156 @@
+package db.table.RCTable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash table from the values of the group by columns to group numbers, along with the
+ * accumulators of each group. Groups are numbered in the order they first appear and
+ * their keys are kept in columns in that order. Unlike a join key, NOVALUE is a key like
+ * any other here, so every row whose key holds NOVALUE in the same places forms one group.
+ * A table with no key columns has exactly one group, so a global aggregate over no rows
+ * still gives a row.
+ */
+class GroupTable {
+    private static final int EMPTY = -1;
+    private static final int NOVALUE_HASH = 0x5bd1e995;
+
+    private List<Column> keys = new ArrayList<>();
+    private List<Accumulator> accumulators = new ArrayList<>();
+    private int[] heads = new int[NumericColumn.DEFAULT_CAPACITY];
+    private int[] next = new int[NumericColumn.DEFAULT_CAPACITY];
+    private int[] hashes = new int[NumericColumn.DEFAULT_CAPACITY];
+    private int[] groupOf = new int[Operator.BATCH_SIZE];
+    private int groups;
+
+    /** Creates an empty table grouping by columns like keySchema, with an empty copy of each
+     *  of accumulators. */
+    GroupTable(List<Column> keySchema, List<Accumulator> accumulators) {
+        for (Column key : keySchema) {
+            keys.add(Column.make(key.name(), key.type()));
+        }
+        for (Accumulator accumulator : accumulators) {
+            this.accumulators.add(accumulator.empty());
+        }
+        Arrays.fill(heads, EMPTY);
+        if (keys.isEmpty()) {
+            addGroup(keys, 0, 0);
+        }
+    }
+
+    /** Returns the number of groups. */
+    int size() {
+        return groups;
+    }
+
+    /** Returns the hash of the key at position row of columns. */
+    private static int hash(List<Column> columns, int row) {
+        int h = 1;
+        for (Column c : columns) {
+            h = 31 * h + (c.isNOVALUE(row) ? NOVALUE_HASH : c.hashItem(row));
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /** Returns whether group holds the key at position row of columns. */
+    private boolean matches(int group, List<Column> columns, int row) {
+        for (int c = 0; c < keys.size(); c++) {
+            Column key = keys.get(c);
+            Column column = columns.get(c);
+            boolean novalue = key.isNOVALUE(group);
+            if (novalue != column.isNOVALUE(row)
+                    || !novalue && key.compareItems(group, column, row) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the group of the key at position row of columns, adding it if it is new. */
+    private int group(List<Column> columns, int row) {
+        int h = hash(columns, row);
+        for (int g = heads[h & (heads.length - 1)]; g != EMPTY; g = next[g]) {
+            if (hashes[g] == h && matches(g, columns, row)) {
+                return g;
+            }
+        }
+        return addGroup(columns, row, h);
+    }
+
+    /** Adds a group for the key at position row of columns with hash h and returns it. */
+    private int addGroup(List<Column> columns, int row, int h) {
+        int g = groups++;
+        if (g == next.length) {
+            next = Arrays.copyOf(next, g * 2);
+            hashes = Arrays.copyOf(hashes, g * 2);
+        }
+        for (int c = 0; c < keys.size(); c++) {
+            keys.get(c).addItem(columns.get(c), row);
+        }
+        for (Accumulator accumulator : accumulators) {
+            accumulator.addGroup();
+        }
+
+        hashes[g] = h;
+        if (groups > heads.length * 3 / 4) {
+            heads = new int[heads.length * 2];
+            Arrays.fill(heads, EMPTY);
+            for (int i = 0; i < g; i++) {
+                link(i);
+            }
+        }
+        link(g);
+        return g;
+    }
+
+    /** Puts group at the head of the chain of its bucket. */
+    private void link(int group) {
+        int bucket = hashes[group] & (heads.length - 1);
+        next[group] = heads[bucket];
+        heads[bucket] = group;
+    }
+
+    /** Adds every row of batch, whose key columns are at keyOrdinals and whose accumulator
+     *  arguments are at argumentOrdinals, -1 standing for every row. */
+    void add(RCTable batch, int[] keyOrdinals, int[] argumentOrdinals) {
+        int rows = batch.numRows();
+        List<Column> columns = batch.columns();
+        List<Column> keyColumns = new ArrayList<>();
+        for (int ordinal : keyOrdinals) {
+            keyColumns.add(columns.get(ordinal));
+        }
+
+        if (groupOf.length < rows) {
+            groupOf = new int[rows];
+        }
+        for (int row = 0; row < rows; row++) {
+            groupOf[row] = keys.isEmpty() ? 0 : group(keyColumns, row);
+        }
+        for (int a = 0; a < accumulators.size(); a++) {
+            int ordinal = argumentOrdinals[a];
+            accumulators.get(a).add(groupOf, ordinal == -1 ? null : columns.get(ordinal), rows);
+        }
+    }
+
+    /** Folds every group of other, which has the same keys and accumulators, into this table.
+     *  The groups new to this table are added in the order they appear in other. */
+    void merge(GroupTable other) {
+        for (int o = 0; o < other.groups; o++) {
+            int g = keys.isEmpty() ? 0 : group(other.keys, o);
+            for (int a = 0; a < accumulators.size(); a++) {
+                accumulators.get(a).merge(g, other.accumulators.get(a), o);
+            }
+        }
+    }
+
+    /** Returns a table holding the key columns and then a column called names[a] with the
+     *  result of each accumulator, one row per group. */
+    RCTable result(List<String> names) {
+        List<Column> columns = new ArrayList<>(keys);
+        for (int a = 0; a < accumulators.size(); a++) {
+            columns.add(accumulators.get(a).result(names.get(a)));
+        }
+        return new RCTable(columns);
+    }
+}
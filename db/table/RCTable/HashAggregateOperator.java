@@ -0,0 +1,138 @@
+package db.table.RCTable;
+
+import db.expressions.ColumnExpression;
+import db.expressions.ColumnReference;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Groups the rows of its input by the values of the group by columns and computes
+ * aggregate functions over each group in a single pass over its input. Its rows hold
+ * the group by columns followed by a column for each aggregate, one row per group in
+ * the order the groups first appear. Nothing is produced until the input runs out.
+ *
+ * When there is more than one thread in the common pool, the input is cut into chunks
+ * that are aggregated into partial group tables in parallel, and the partial tables are
+ * merged into the final one in input order, so the groups come out in the same order.
+ */
+class HashAggregateOperator implements Operator {
+    private static final int CHUNK_ROWS = 64 * BATCH_SIZE;
+
+    private Operator input;
+    private int[] keyOrdinals;
+    private int[] argumentOrdinals;
+    private List<Column> keySchema = new ArrayList<>();
+    private List<Accumulator> accumulators = new ArrayList<>();
+    private List<String> names = new ArrayList<>();
+    private RCTable result;
+    private int position;
+
+    HashAggregateOperator(Operator input, List<String> groupBy, List<ColumnExpression> aggregates)
+            throws RuntimeException {
+        this.input = input;
+        List<Column> columns = input.schema().columns();
+
+        keyOrdinals = new int[groupBy.size()];
+        for (int k = 0; k < groupBy.size(); k++) {
+            ColumnReference key = ColumnReference.bind(columns, groupBy.get(k));
+            keyOrdinals[k] = key.ordinal();
+            keySchema.add(columns.get(key.ordinal()));
+        }
+
+        argumentOrdinals = new int[aggregates.size()];
+        for (int a = 0; a < aggregates.size(); a++) {
+            ColumnExpression aggregate = aggregates.get(a);
+            Column argument = null;
+            argumentOrdinals[a] = -1;
+            if (!aggregate.argument().equals("*")) {
+                argumentOrdinals[a] = ColumnReference.bind(columns, aggregate.argument()).ordinal();
+                argument = columns.get(argumentOrdinals[a]);
+            }
+            accumulators.add(Accumulator.make(aggregate.function(), argument));
+            names.add(aggregate.name());
+        }
+    }
+
+    @Override
+    public RCTable schema() {
+        List<Column> columns = new ArrayList<>();
+        for (Column key : keySchema) {
+            columns.add(Column.make(key.name(), key.type()));
+        }
+        for (int a = 0; a < accumulators.size(); a++) {
+            columns.add(Column.make(names.get(a), accumulators.get(a).type()));
+        }
+        return new RCTable(columns);
+    }
+
+    @Override
+    public RCTable next() throws RuntimeException {
+        if (result == null) {
+            result = aggregate().result(names);
+        }
+        if (position >= result.numRows()) {
+            return null;
+        }
+
+        int count = Math.min(BATCH_SIZE, result.numRows() - position);
+        int[] selection = new int[count];
+        for (int i = 0; i < count; i++) {
+            selection[i] = position + i;
+        }
+        position += count;
+        return result.select(selection, count);
+    }
+
+    /** Returns the group table of every row of the input. */
+    private GroupTable aggregate() throws RuntimeException {
+        GroupTable groups = new GroupTable(keySchema, accumulators);
+        int parallelism = ForkJoinPool.getCommonPoolParallelism();
+        if (parallelism < 2) {
+            for (RCTable batch = input.next(); batch != null; batch = input.next()) {
+                groups.add(batch, keyOrdinals, argumentOrdinals);
+            }
+            return groups;
+        }
+
+        // At most one chunk per thread is aggregated at a time, the oldest one is merged
+        // before another is started so the input is never read far ahead.
+        Deque<ForkJoinTask<GroupTable>> partials = new ArrayDeque<>();
+        List<RCTable> chunk = new ArrayList<>();
+        int rows = 0;
+        for (RCTable batch = input.next(); batch != null; batch = input.next()) {
+            chunk.add(batch);
+            rows += batch.numRows();
+            if (rows >= CHUNK_ROWS) {
+                if (partials.size() == parallelism) {
+                    groups.merge(partials.removeFirst().join());
+                }
+                partials.addLast(ForkJoinPool.commonPool().submit(partial(chunk)));
+                chunk = new ArrayList<>();
+                rows = 0;
+            }
+        }
+        if (!chunk.isEmpty()) {
+            partials.addLast(ForkJoinPool.commonPool().submit(partial(chunk)));
+        }
+        while (!partials.isEmpty()) {
+            groups.merge(partials.removeFirst().join());
+        }
+        return groups;
+    }
+
+    /** Returns a task aggregating the batches of chunk into a partial group table. */
+    private ForkJoinTask<GroupTable> partial(List<RCTable> chunk) {
+        return ForkJoinTask.adapt(() -> {
+            GroupTable groups = new GroupTable(keySchema, accumulators);
+            for (RCTable batch : chunk) {
+                groups.add(batch, keyOrdinals, argumentOrdinals);
+            }
+            return groups;
+        });
+    }
+}
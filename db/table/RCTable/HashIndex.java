@@ -0,0 +1,54 @@
+package db.table.RCTable;
+
+import db.literals.Literal;
+import db.literals.NaN;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * A hash index over one column of a table. It maps every value of the column to the
+ * positions of the rows holding it, so equality conditions and joins on the column
+ * don't have to scan the table.
+ */
+public class HashIndex extends Index {
+    private KeyHashTable table;
+
+    /** Creates an index called name over every row currently in column. */
+    HashIndex(String name, Column column) {
+        super(name, column);
+        this.table = new KeyHashTable(Collections.singletonList(column));
+    }
+
+    @Override
+    void add(int row) {
+        table.add(row);
+    }
+
+    /** Returns the hash table of the index, keyed by the indexed column. */
+    KeyHashTable hashTable() {
+        return table;
+    }
+
+    @Override
+    boolean answers(String operator, Literal literal) {
+        return operator.equals("==") && !(literal instanceof NaN) && comparable(literal);
+    }
+
+    @Override
+    int[] lookup(String operator, Literal literal) {
+        Column probe = Column.make("", literal.getType());
+        probe.addItem(literal);
+
+        int[] rows = new int[NumericColumn.DEFAULT_CAPACITY];
+        int count = 0;
+        for (int row = table.first(Collections.singletonList(probe), 0); row != -1;
+             row = table.next(row, Collections.singletonList(probe), 0)) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = row;
+        }
+        return Arrays.copyOf(rows, count);
+    }
+}
@@ -0,0 +1,60 @@
+package db.table.RCTable;
+
+import db.literals.FloatLiteral;
+import db.literals.IntLiteral;
+import db.literals.Literal;
+import db.literals.NaN;
+import db.literals.StringLiteral;
+
+/**
+ * A named index over one column of a table. It is kept up to date as rows are added
+ * and finds the rows satisfying a comparison of the column with a literal without
+ * scanning the table.
+ */
+public abstract class Index {
+    private String name;
+    private Column column;
+
+    protected Index(String name, Column column) {
+        this.name = name;
+        this.column = column;
+    }
+
+    /** Returns the name of this index. */
+    public String name() {
+        return name;
+    }
+
+    /** Returns the name of the indexed column. */
+    public String column() {
+        return column.name();
+    }
+
+    /** Returns the indexed column. */
+    Column indexed() {
+        return column;
+    }
+
+    /** Adds the row at position row, which must be the last row of the column. */
+    abstract void add(int row);
+
+    /** Returns whether the index can find the rows whose item satisfies operator against literal. */
+    abstract boolean answers(String operator, Literal literal);
+
+    /** Returns the positions of the rows whose item satisfies operator against literal, in
+     *  ascending order. Only called if the index answers the comparison. */
+    abstract int[] lookup(String operator, Literal literal);
+
+    /** Returns whether literal can be compared with the items of the column without failing.
+     *  Only numbers, strings and NaN are, other literals are left to a scan. */
+    boolean comparable(Literal literal) {
+        if (literal instanceof NaN) {
+            return true;
+        }
+        boolean number = literal instanceof IntLiteral || literal instanceof FloatLiteral;
+        if (!number && !(literal instanceof StringLiteral)) {
+            return false;
+        }
+        return Column.comparableTypes(column.type(), literal.getType());
+    }
+}
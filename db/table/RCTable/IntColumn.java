@@ -0,0 +1,117 @@
+package db.table.RCTable;
+
+import db.literals.IntLiteral;
+import db.literals.Literal;
+
+import java.util.Arrays;
+
+/**
+ * An int column keeps its values in an int[] instead of boxed IntLiterals.
+ */
+public class IntColumn extends NumericColumn {
+    private int[] values;
+
+    /** Create an empty int column called name. */
+    public IntColumn(String name) {
+        this(name, DEFAULT_CAPACITY);
+    }
+
+    /** Create an empty int column called name with room for capacity items. */
+    public IntColumn(String name, int capacity) {
+        super(name, IntLiteral.type);
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    /** Returns the value at position index. NOVALUE and NaN items return zero. */
+    public int getInt(int index) {
+        return values[index];
+    }
+
+    /** Appends value at last position in this column. */
+    public void addInt(int value) {
+        // append may grow the array, so it must run before values is read.
+        int index = append(VALUE);
+        values[index] = value;
+    }
+
+    @Override
+    public double getDouble(int index) {
+        return values[index];
+    }
+
+    /** Returns the value array, which may be longer than the column. */
+    int[] values() {
+        return values;
+    }
+
+    @Override
+    protected void ensureValueCapacity(int capacity) {
+        if (capacity > values.length) {
+            values = Arrays.copyOf(values, Math.max(capacity, values.length * 2));
+        }
+    }
+
+    @Override
+    public Literal getItem(int index) {
+        Literal special = getSpecial(index);
+        if (special != null) {
+            return special;
+        }
+        return new IntLiteral(values[index]);
+    }
+
+    @Override
+    public void addItem(Literal item) {
+        if (addSpecial(item)) {
+            return;
+        }
+        if (!(item instanceof IntLiteral)) {
+            throw new RuntimeException("ERROR: Type mismatch in int column!");
+        }
+        addInt(((IntLiteral) item).getObject());
+    }
+
+    @Override
+    public void addItem(Column source, int index) {
+        if (!(source instanceof IntColumn)) {
+            super.addItem(source, index);
+            return;
+        }
+        int position = copyMarker((IntColumn) source, index);
+        values[position] = ((IntColumn) source).values[index];
+    }
+
+    @Override
+    public int compareItems(int index, Column other, int otherIndex) {
+        if (!(other instanceof IntColumn) || isNaN(index) || other.isNaN(otherIndex)) {
+            return super.compareItems(index, other, otherIndex);
+        }
+        return Integer.compare(values[index], ((IntColumn) other).values[otherIndex]);
+    }
+
+    @Override
+    public void addAll(Column source) {
+        if (!(source instanceof IntColumn)) {
+            super.addAll(source);
+            return;
+        }
+        IntColumn column = (IntColumn) source;
+        ensureValueCapacity(length() + column.length());
+        int offset = copyMarkers(column);
+        System.arraycopy(column.values, 0, values, offset, column.length());
+    }
+
+    @Override
+    public void clearData() {
+        super.clearData();
+        values = new int[DEFAULT_CAPACITY];
+    }
+
+    @Override
+    public IntColumn clone() {
+        IntColumn copy = new IntColumn(name(), 1);
+        copy.values = Arrays.copyOf(values, values.length);
+        copyMarkersInto(copy);
+        return copy;
+    }
+}
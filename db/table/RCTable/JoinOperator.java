@@ -0,0 +1,171 @@
+package db.table.RCTable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Natural inner join of the rows of an input with a table. The table is loaded into a
+ * KeyHashTable keyed by the common columns once, or the hash table of its index is used
+ * when it is joined on a single indexed column, and every row of the input probes it
+ * as its batch is pulled. Matches are gathered into batches of at most BATCH_SIZE rows,
+ * so a row with many matches is spread over several batches. Inputs without common
+ * columns give their cartesian product and output rows are ordered by input row, then
+ * table row, with the common columns first. RCTable.join collects the rows of these
+ * operators too, so there is one join for selects and for joining whole tables.
+ */
+class JoinOperator implements Operator {
+    private static final int NONE = -1;
+    private static final int UNSTARTED = -2;
+
+    private Operator input;
+    private RCTable table;
+    private List<Integer> inputKeys = new ArrayList<>();
+    private List<Integer> tableKeys = new ArrayList<>();
+    private List<Integer> inputRest = new ArrayList<>();
+    private List<Integer> tableRest = new ArrayList<>();
+    private KeyHashTable built;
+
+    // The input batch being probed, the row probing and the table row it matched last.
+    private RCTable batch;
+    private List<Column> probe;
+    private int row;
+    private int match = UNSTARTED;
+
+    private int[] batchRows = new int[BATCH_SIZE];
+    private int[] tableRows = new int[BATCH_SIZE];
+
+    JoinOperator(Operator input, RCTable table) {
+        this.input = input;
+        this.table = table;
+
+        List<Column> inputColumns = input.schema().columns();
+        List<Column> tableColumns = table.columns();
+        for (int i = 0; i < inputColumns.size(); i++) {
+            for (int j = 0; j < tableColumns.size(); j++) {
+                if (inputColumns.get(i).name().equals(tableColumns.get(j).name())) {
+                    inputKeys.add(i);
+                    tableKeys.add(j);
+                }
+            }
+        }
+        for (int i = 0; i < inputColumns.size(); i++) {
+            if (!inputKeys.contains(i)) {
+                inputRest.add(i);
+            }
+        }
+        for (int j = 0; j < tableColumns.size(); j++) {
+            if (!tableKeys.contains(j)) {
+                tableRest.add(j);
+            }
+        }
+
+        if (!inputKeys.isEmpty() && table.numRows() > 0 && keysComparable(inputColumns)) {
+            HashIndex index = tableKeys.size() == 1 ? table.hashIndex(tableColumns.get(tableKeys.get(0)).name()) : null;
+            built = index != null ? index.hashTable() : new KeyHashTable(columns(tableColumns, tableKeys));
+        }
+    }
+
+    /** Returns the columns at the given positions. */
+    private static List<Column> columns(List<Column> columns, List<Integer> positions) {
+        List<Column> selected = new ArrayList<>();
+        for (int position : positions) {
+            selected.add(columns.get(position));
+        }
+        return selected;
+    }
+
+    /** Returns whether every pair of key columns holds comparable types. */
+    private boolean keysComparable(List<Column> inputColumns) {
+        for (int i = 0; i < inputKeys.size(); i++) {
+            if (!Column.comparable(inputColumns.get(inputKeys.get(i)), table.columns().get(tableKeys.get(i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns whether the inputs are joined without common columns. */
+    private boolean cartesian() {
+        return inputKeys.isEmpty();
+    }
+
+    /** Returns the first table row matching the current input row, or NONE. */
+    private int first() {
+        if (cartesian()) {
+            return table.numRows() > 0 ? 0 : NONE;
+        }
+        return built == null ? NONE : built.first(probe, row);
+    }
+
+    /** Returns the table row after match that matches the current input row, or NONE. */
+    private int following() {
+        if (cartesian()) {
+            return match + 1 < table.numRows() ? match + 1 : NONE;
+        }
+        return built.next(match, probe, row);
+    }
+
+    @Override
+    public RCTable schema() {
+        List<Column> columns = new ArrayList<>();
+        List<Column> inputColumns = input.schema().columns();
+        for (int position : inputKeys) {
+            columns.add(inputColumns.get(position));
+        }
+        for (int position : inputRest) {
+            columns.add(inputColumns.get(position));
+        }
+        for (int position : tableRest) {
+            Column c = table.columns().get(position);
+            columns.add(Column.make(c.name(), c.type()));
+        }
+        return new RCTable(columns);
+    }
+
+    @Override
+    public RCTable next() throws RuntimeException {
+        while (true) {
+            if (batch == null || row == batch.numRows()) {
+                batch = input.next();
+                if (batch == null) {
+                    return null;
+                }
+                probe = columns(batch.columns(), inputKeys);
+                row = 0;
+                match = UNSTARTED;
+            }
+
+            int count = 0;
+            while (row < batch.numRows() && count < BATCH_SIZE) {
+                match = match == UNSTARTED ? first() : following();
+                if (match == NONE) {
+                    row++;
+                    match = UNSTARTED;
+                } else {
+                    batchRows[count] = row;
+                    tableRows[count] = match;
+                    count++;
+                }
+            }
+
+            if (count > 0) {
+                return gather(count);
+            }
+        }
+    }
+
+    /** Copies the first count matched rows into a new batch. */
+    private RCTable gather(int count) {
+        List<Column> joined = new ArrayList<>();
+        for (int position : inputKeys) {
+            joined.add(batch.columns().get(position).select(batchRows, count));
+        }
+        for (int position : inputRest) {
+            joined.add(batch.columns().get(position).select(batchRows, count));
+        }
+        for (int position : tableRest) {
+            joined.add(table.columns().get(position).select(tableRows, count));
+        }
+        return new RCTable(joined);
+    }
+}
@@ -0,0 +1,203 @@
+package db.table.RCTable;
+
+import db.literals.IntLiteral;
+import db.literals.Literal;
+import db.literals.StringLiteral;
+import db.operators.arithmetic.ArithmeticOperator;
+
+import java.util.Arrays;
+
+/**
+ * An arithmetic operator specialized for the types of its operands. The kernel is chosen
+ * once per expression from the declared types: int and int columns are evaluated on int
+ * arrays, any other pair of numbers on double arrays, and strings through the dictionaries
+ * of their columns. Columns that don't hold the storage their type promises are evaluated
+ * item by item.
+ */
+public abstract class Kernel {
+    protected final ArithmeticOperator operator;
+
+    private Kernel(ArithmeticOperator operator) {
+        this.operator = operator;
+    }
+
+    /** Returns the kernel applying operator to a left operand of type left and a right
+     *  operand of type right. Fails unless both are numbers, or both are strings and the
+     *  operator is defined on strings, even if no row is ever evaluated. */
+    public static Kernel of(ArithmeticOperator operator, String left, String right) throws RuntimeException {
+        if (left.equals(IntLiteral.type) && right.equals(IntLiteral.type)) {
+            return new Ints(operator);
+        }
+        if (db.operators.Operator.isNumberType(left) && db.operators.Operator.isNumberType(right)) {
+            return new Floats(operator);
+        }
+        if (left.equals(StringLiteral.type) && right.equals(StringLiteral.type) && operator.operate("", "") != null) {
+            return new Strings(operator);
+        }
+        throw new RuntimeException("ERROR: Operator failed!");
+    }
+
+    /** Returns a new column called alias holding the operator applied to left and right
+     *  row by row. */
+    public Column apply(Column left, Column right, String alias) throws RuntimeException {
+        if (left.length() != right.length()) {
+            throw new RuntimeException("ERROR: Column size mismatch.");
+        }
+        return evaluate(left, right, alias);
+    }
+
+    /** Returns a new column called alias holding the operator applied to every row of left
+     *  and to right. */
+    public abstract Column apply(Column left, Literal right, String alias) throws RuntimeException;
+
+    /** Applies the operator to two columns of the same length. */
+    abstract Column evaluate(Column left, Column right, String alias) throws RuntimeException;
+
+    /** Applies the operator to left and right one item at a time. */
+    Column byItem(Column left, Column right, String alias) throws RuntimeException {
+        Column result = Column.make(alias, left.type());
+        for (int i = 0; i < left.length(); i++) {
+            Literal item = operator.operate(left.getItem(i), right.getItem(i));
+            if (item == null) {
+                throw new RuntimeException("ERROR: Operator failed!");
+            }
+            result.addItem(item);
+        }
+        return result;
+    }
+
+    /** Applies the operator to every item of left and to right one item at a time. */
+    Column byItem(Column left, Literal right, String alias) throws RuntimeException {
+        Column result = Column.make(alias, left.type());
+        for (int i = 0; i < left.length(); i++) {
+            Literal item = operator.operate(left.getItem(i), right);
+            if (item == null) {
+                throw new RuntimeException("ERROR: Operator failed!");
+            }
+            result.addItem(item);
+        }
+        return result;
+    }
+
+    /** Combines two int columns into an int column. */
+    private static class Ints extends Kernel {
+        Ints(ArithmeticOperator operator) {
+            super(operator);
+        }
+
+        @Override
+        Column evaluate(Column left, Column right, String alias) throws RuntimeException {
+            if (left instanceof IntColumn && right instanceof IntColumn) {
+                return NumericColumn.evaluateInts((IntColumn) left, (IntColumn) right, false, operator, alias);
+            }
+            return byItem(left, right, alias);
+        }
+
+        @Override
+        public Column apply(Column left, Literal right, String alias) throws RuntimeException {
+            if (left instanceof IntColumn && right instanceof IntLiteral) {
+                IntColumn scalar = new IntColumn("", 1);
+                scalar.addItem(right);
+                return NumericColumn.evaluateInts((IntColumn) left, scalar, true, operator, alias);
+            }
+            return byItem(left, right, alias);
+        }
+    }
+
+    /** Combines two numeric columns, at least one of them a float column, into a float column. */
+    private static class Floats extends Kernel {
+        Floats(ArithmeticOperator operator) {
+            super(operator);
+        }
+
+        @Override
+        Column evaluate(Column left, Column right, String alias) throws RuntimeException {
+            if (left instanceof NumericColumn && right instanceof NumericColumn) {
+                return NumericColumn.evaluateFloats((NumericColumn) left, (NumericColumn) right, false, operator, alias);
+            }
+            return byItem(left, right, alias);
+        }
+
+        @Override
+        public Column apply(Column left, Literal right, String alias) throws RuntimeException {
+            if (left instanceof NumericColumn && Column.isNumber(right)) {
+                NumericColumn scalar = (NumericColumn) Column.make("", right.getType());
+                scalar.addItem(right);
+                return NumericColumn.evaluateFloats((NumericColumn) left, scalar, true, operator, alias);
+            }
+            return byItem(left, right, alias);
+        }
+    }
+
+    /**
+     * Combines two string columns into a string column. Two NOVALUE items give NOVALUE, a
+     * NaN on either side gives NaN and a single NOVALUE counts as the empty string. Against
+     * a literal the operator runs once per distinct string of the column.
+     */
+    private static class Strings extends Kernel {
+        Strings(ArithmeticOperator operator) {
+            super(operator);
+        }
+
+        /** Returns the string coded by code in column, with NOVALUE as the empty string. */
+        private static String value(StringColumn column, int code) {
+            return code == StringColumn.NOVALUE_CODE ? "" : column.dictionary().value(code);
+        }
+
+        @Override
+        Column evaluate(Column left, Column right, String alias) throws RuntimeException {
+            if (!(left instanceof StringColumn && right instanceof StringColumn)) {
+                return byItem(left, right, alias);
+            }
+            StringColumn a = (StringColumn) left;
+            StringColumn b = (StringColumn) right;
+            StringColumn result = new StringColumn(alias);
+            result.reserve(a.length());
+            for (int i = 0; i < a.length(); i++) {
+                int aCode = a.code(i);
+                int bCode = b.code(i);
+                if (aCode == StringColumn.NOVALUE_CODE && bCode == StringColumn.NOVALUE_CODE) {
+                    result.addCode(StringColumn.NOVALUE_CODE);
+                } else if (aCode == StringColumn.NAN_CODE || bCode == StringColumn.NAN_CODE) {
+                    result.addCode(StringColumn.NAN_CODE);
+                } else {
+                    result.addValue(operator.operate(value(a, aCode), value(b, bCode)));
+                }
+            }
+            return result;
+        }
+
+        @Override
+        public Column apply(Column left, Literal right, String alias) throws RuntimeException {
+            if (!(left instanceof StringColumn && right instanceof StringLiteral)) {
+                return byItem(left, right, alias);
+            }
+            StringColumn a = (StringColumn) left;
+            String b = ((StringLiteral) right).getObject();
+            StringColumn result = new StringColumn(alias);
+            result.reserve(a.length());
+
+            // The code in the result of each code of the column, worked out on first use.
+            int[] results = new int[a.dictionary().size()];
+            Arrays.fill(results, Dictionary.ABSENT);
+            int novalue = Dictionary.ABSENT;
+            for (int i = 0; i < a.length(); i++) {
+                int code = a.code(i);
+                if (code == StringColumn.NAN_CODE) {
+                    result.addCode(StringColumn.NAN_CODE);
+                } else if (code == StringColumn.NOVALUE_CODE) {
+                    if (novalue == Dictionary.ABSENT) {
+                        novalue = result.encode(operator.operate("", b));
+                    }
+                    result.addCode(novalue);
+                } else {
+                    if (results[code] == Dictionary.ABSENT) {
+                        results[code] = result.encode(operator.operate(value(a, code), b));
+                    }
+                    result.addCode(results[code]);
+                }
+            }
+            return result;
+        }
+    }
+}
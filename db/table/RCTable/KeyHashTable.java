@@ -0,0 +1,137 @@
+package db.table.RCTable;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A hash table over one or more key columns that maps key values to row positions.
+ * Rows whose key holds NOVALUE are never added since NOVALUE equals nothing.
+ * Rows sharing a key are chained in the order they were added, so matches
+ * are always returned in ascending row order.
+ */
+class KeyHashTable {
+    private static final int EMPTY = -1;
+
+    private List<Column> keys;
+    private int[] heads;
+    private int[] tails;
+    private int[] next;
+    private int[] hashes;
+    private int count;
+
+    /** Creates a hash table over keys and adds every row currently stored in them. */
+    KeyHashTable(List<Column> keys) {
+        this.keys = keys;
+        int rows = keys.get(0).length();
+        next = new int[Math.max(rows, NumericColumn.DEFAULT_CAPACITY)];
+        hashes = new int[next.length];
+        allocateBuckets(rows);
+        for (int row = 0; row < rows; row++) {
+            add(row);
+        }
+    }
+
+    /** Returns the combined hash of the key items at position row of columns. */
+    static int hash(List<Column> columns, int row) {
+        int h = 1;
+        for (Column c : columns) {
+            h = 31 * h + c.hashItem(row);
+        }
+        // Spread the high bits so the bucket mask sees them.
+        return h ^ (h >>> 16);
+    }
+
+    /** Returns whether any key item at position row of columns is NOVALUE. */
+    private static boolean hasNOVALUE(List<Column> columns, int row) {
+        for (Column c : columns) {
+            if (c.isNOVALUE(row)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Adds the row at position row of the key columns. Rows must be added in ascending order. */
+    void add(int row) {
+        if (row >= next.length) {
+            int capacity = Math.max(row + 1, next.length * 2);
+            next = Arrays.copyOf(next, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+        }
+        next[row] = EMPTY;
+        if (hasNOVALUE(keys, row)) {
+            return;
+        }
+
+        hashes[row] = hash(keys, row);
+        if (++count > heads.length * 3 / 4) {
+            rehash(row);
+        }
+        link(row);
+    }
+
+    /** Returns the first row whose key equals the key at position row of probe, or -1. */
+    int first(List<Column> probe, int row) {
+        if (hasNOVALUE(probe, row)) {
+            return EMPTY;
+        }
+        int h = hash(probe, row);
+        return match(heads[h & (heads.length - 1)], h, probe, row);
+    }
+
+    /** Returns the row after position that matches the key at position row of probe, or -1. */
+    int next(int position, List<Column> probe, int row) {
+        return match(next[position], hashes[position], probe, row);
+    }
+
+    /** Follows the chain from candidate until a row with an equal key is found. */
+    private int match(int candidate, int h, List<Column> probe, int row) {
+        while (candidate != EMPTY) {
+            if (hashes[candidate] == h && keysEqual(candidate, probe, row)) {
+                return candidate;
+            }
+            candidate = next[candidate];
+        }
+        return EMPTY;
+    }
+
+    /** Returns whether the key of position candidate equals the key at position row of probe. */
+    private boolean keysEqual(int candidate, List<Column> probe, int row) {
+        for (int i = 0; i < keys.size(); i++) {
+            if (!keys.get(i).itemEquals(candidate, probe.get(i), row)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Appends row to the end of its bucket chain. */
+    private void link(int row) {
+        int bucket = hashes[row] & (heads.length - 1);
+        if (heads[bucket] == EMPTY) {
+            heads[bucket] = row;
+        } else {
+            next[tails[bucket]] = row;
+        }
+        tails[bucket] = row;
+    }
+
+    /** Allocates empty buckets for about expected keys. */
+    private void allocateBuckets(int expected) {
+        int size = Integer.highestOneBit(Math.max(expected, NumericColumn.DEFAULT_CAPACITY) * 2 - 1) << 1;
+        heads = new int[size];
+        tails = new int[size];
+        Arrays.fill(heads, EMPTY);
+    }
+
+    /** Doubles the number of buckets and relinks every row before position last. */
+    private void rehash(int last) {
+        allocateBuckets(heads.length);
+        for (int row = 0; row < last; row++) {
+            if (!hasNOVALUE(keys, row)) {
+                next[row] = EMPTY;
+                link(row);
+            }
+        }
+    }
+}
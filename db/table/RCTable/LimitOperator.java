@@ -0,0 +1,46 @@
+package db.table.RCTable;
+
+/**
+ * Passes on the first rows of its input up to a limit. Once the limit is reached it stops
+ * pulling batches from its input, so nothing below it does any more work.
+ */
+class LimitOperator implements Operator {
+    private Operator input;
+    private int remaining;
+
+    LimitOperator(Operator input, int limit) {
+        this.input = input;
+        this.remaining = limit;
+    }
+
+    @Override
+    public Operator limit(int count) {
+        return new LimitOperator(input, Math.min(remaining, count));
+    }
+
+    @Override
+    public RCTable schema() {
+        return input.schema();
+    }
+
+    @Override
+    public RCTable next() throws RuntimeException {
+        if (remaining <= 0) {
+            return null;
+        }
+        RCTable batch = input.next();
+        if (batch == null) {
+            return null;
+        }
+
+        if (batch.numRows() > remaining) {
+            int[] selection = new int[remaining];
+            for (int i = 0; i < remaining; i++) {
+                selection[i] = i;
+            }
+            batch = batch.select(selection, remaining);
+        }
+        remaining -= batch.numRows();
+        return batch;
+    }
+}
@@ -0,0 +1,129 @@
+package db.table.RCTable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Runs work over the rows of a table in morsels, ranges of MORSEL_ROWS rows, on the common
+ * fork-join pool, and hands back the result of each morsel in row order so the output
+ * doesn't depend on which thread finishes first. Morsels start on a zone map block, so a
+ * block is never split between two of them.
+ *
+ * Tables with fewer rows than the parallel threshold, and every table when the pool only
+ * has one thread, are processed as a single morsel on the calling thread. When morsels
+ * fail, the error of the first failing one is reported, the same one processing the rows
+ * in order would have reported.
+ */
+class Morsels {
+    static final int MORSEL_ROWS = 64 * Operator.BATCH_SIZE;
+    static final int DEFAULT_PARALLEL_THRESHOLD = 4 * MORSEL_ROWS;
+
+    private static volatile int parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+
+    /** The work done on one range of rows. */
+    interface Work<T> {
+        /** Returns the result of the rows in [from, to). */
+        T run(int from, int to) throws RuntimeException;
+    }
+
+    /** Sets the number of rows from which a table is processed in parallel. */
+    static void setParallelThreshold(int rows) {
+        parallelThreshold = rows;
+    }
+
+    /** Returns whether rows rows are enough to be processed in parallel. */
+    static boolean parallel(long rows) {
+        return rows >= Math.max(parallelThreshold, 1) && ForkJoinPool.getCommonPoolParallelism() >= 2;
+    }
+
+    /** Returns the result of work over each morsel of [0, rows), in row order. */
+    static <T> List<T> map(int rows, Work<T> work) throws RuntimeException {
+        if (!parallel(rows)) {
+            return Collections.singletonList(work.run(0, rows));
+        }
+
+        Window<T> window = new Window<>();
+        List<T> results = new ArrayList<>();
+        int from = 0;
+        while (from < rows || !window.isEmpty()) {
+            for (; from < rows && !window.isFull(); from += MORSEL_ROWS) {
+                int start = from;
+                int end = Math.min(rows, from + MORSEL_ROWS);
+                window.submit(() -> work.run(start, end));
+            }
+            results.add(window.take());
+        }
+        return results;
+    }
+
+    /**
+     * Tasks on the common pool whose results are taken in the order they were submitted.
+     * It is full once there is a task for every thread of the pool, so whoever feeds it
+     * never gets far ahead of whoever takes the results.
+     */
+    static class Window<T> {
+        private Deque<ForkJoinTask<Outcome<T>>> tasks = new ArrayDeque<>();
+
+        /** Returns whether no task is waiting to be taken. */
+        boolean isEmpty() {
+            return tasks.isEmpty();
+        }
+
+        /** Returns whether no more tasks should be submitted before one is taken. */
+        boolean isFull() {
+            return tasks.size() >= ForkJoinPool.getCommonPoolParallelism();
+        }
+
+        /** Starts work on the pool. */
+        void submit(Supplier<T> work) {
+            tasks.addLast(ForkJoinPool.commonPool().submit(ForkJoinTask.adapt(() -> Outcome.of(work))));
+        }
+
+        /** Waits for the oldest task and returns its result, or throws the error it failed
+         *  with after cancelling the tasks after it. */
+        T take() throws RuntimeException {
+            Outcome<T> outcome = tasks.removeFirst().join();
+            if (outcome.error != null) {
+                for (ForkJoinTask<Outcome<T>> task : tasks) {
+                    task.cancel(false);
+                }
+                tasks.clear();
+                throw outcome.error;
+            }
+            return outcome.result;
+        }
+    }
+
+    /**
+     * The batches a task produced, in order, and the error that stopped it, if any. A task
+     * producing batches for an operator keeps the batches before its error, so they are
+     * passed on before the error is reported, just as one thread would pass them on.
+     */
+    static class Batches {
+        final List<RCTable> batches = new ArrayList<>();
+        RuntimeException error;
+    }
+
+    /** The result of a task or the error it failed with. Errors are handed back rather
+     *  than thrown from the task, since joining a task rethrows them wrapped in a copy. */
+    private static class Outcome<T> {
+        private T result;
+        private RuntimeException error;
+
+        static <T> Outcome<T> of(Supplier<T> work) {
+            Outcome<T> outcome = new Outcome<>();
+            try {
+                outcome.result = work.get();
+            } catch (RuntimeException e) {
+                outcome.error = e;
+            }
+            return outcome;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package db.table.RCTable;
+
+import db.literals.IntLiteral;
+import db.literals.Literal;
+import db.literals.NOVALUE;
+import db.literals.NaN;
+import db.operators.arithmetic.ArithmeticOperator;
+import db.operators.comparison.ComparisonOperator;
+
+import java.util.Arrays;
+
+/**
+ * A numeric column stores its values in a primitive array. NOVALUE and NaN
+ * are kept in a separate marker array that is only allocated once the first
+ * special value is added, the value slot of a special item is always zero.
+ */
+public abstract class NumericColumn extends Column {
+    static final byte VALUE = 0;
+    static final byte NOVALUE_MARKER = 1;
+    static final byte NAN_MARKER = 2;
+    static final int DEFAULT_CAPACITY = 16;
+
+    private byte[] markers;
+    protected int size;
+
+    protected NumericColumn(String name, String type) {
+        super(name, type);
+    }
+
+    /** Returns the value at position index widened to a double. */
+    public abstract double getDouble(int index);
+
+    /** Grows the value storage so it can hold at least capacity items. */
+    protected abstract void ensureValueCapacity(int capacity);
+
+    /** Makes room for one more item with the given marker and returns its position. */
+    protected int append(byte marker) {
+        ensureValueCapacity(size + 1);
+        mark(size, marker);
+        return size++;
+    }
+
+    /** Records marker for the item at position index. */
+    private void mark(int index, byte marker) {
+        if (markers == null) {
+            if (marker == VALUE) {
+                return;
+            }
+            markers = new byte[Math.max(DEFAULT_CAPACITY, index + 1)];
+        } else if (index >= markers.length) {
+            markers = Arrays.copyOf(markers, Math.max(index + 1, markers.length * 2));
+        }
+        markers[index] = marker;
+    }
+
+    /** Returns the marker of the item at position index. */
+    protected byte marker(int index) {
+        return markers == null ? VALUE : markers[index];
+    }
+
+    /** Returns the marker array, which is null if every item is a value and may be longer
+     *  than the column. */
+    byte[] markers() {
+        return markers;
+    }
+
+    /** Replaces the markers of this column and sets its length to size. The value slots must
+     *  already hold size values. */
+    void setMarkers(byte[] markers, int size) {
+        this.markers = markers;
+        this.size = size;
+    }
+
+    /** Appends NOVALUE to this column. */
+    public void addNOVALUE() {
+        append(NOVALUE_MARKER);
+    }
+
+    /** Appends NaN to this column. */
+    public void addNaN() {
+        append(NAN_MARKER);
+    }
+
+    /** Appends a special item if item is NOVALUE or NaN, returning whether it did. */
+    protected boolean addSpecial(Literal item) {
+        if (item instanceof NOVALUE) {
+            addNOVALUE();
+            return true;
+        } else if (item instanceof NaN) {
+            addNaN();
+            return true;
+        }
+        return false;
+    }
+
+    /** Appends the marker of the item at position index in source and returns the new position. */
+    protected int copyMarker(NumericColumn source, int index) {
+        return append(source.marker(index));
+    }
+
+    /** Appends the markers of every item in source and returns the position of the first one.
+     *  The value slots must already have room for them. */
+    protected int copyMarkers(NumericColumn source) {
+        int offset = size;
+        int count = source.size;
+        if (count > 0 && (markers != null || source.markers != null)) {
+            if (markers == null) {
+                markers = new byte[Math.max(DEFAULT_CAPACITY, offset + count)];
+            } else if (offset + count > markers.length) {
+                markers = Arrays.copyOf(markers, Math.max(offset + count, markers.length * 2));
+            }
+
+            if (source.markers == null) {
+                Arrays.fill(markers, offset, offset + count, VALUE);
+            } else {
+                System.arraycopy(source.markers, 0, markers, offset, count);
+            }
+        }
+        size += count;
+        return offset;
+    }
+
+    /** Returns the special literal stored at position index, or null for a regular value. */
+    protected Literal getSpecial(int index) {
+        switch (marker(index)) {
+            case NOVALUE_MARKER:
+                return new NOVALUE(type());
+            case NAN_MARKER:
+                return new NaN(type());
+            default:
+                return null;
+        }
+    }
+
+    /** Copies the markers of this column into copy. */
+    protected void copyMarkersInto(NumericColumn copy) {
+        copy.size = size;
+        copy.markers = markers == null ? null : Arrays.copyOf(markers, markers.length);
+    }
+
+    @Override
+    protected void reserve(int capacity) {
+        ensureValueCapacity(capacity);
+    }
+
+    @Override
+    public int length() {
+        return size;
+    }
+
+    @Override
+    public void clearData() {
+        size = 0;
+        markers = null;
+    }
+
+    @Override
+    public boolean isNOVALUE(int index) {
+        return marker(index) == NOVALUE_MARKER;
+    }
+
+    @Override
+    public boolean isNaN(int index) {
+        return marker(index) == NAN_MARKER;
+    }
+
+    @Override
+    public int hashItem(int index) {
+        if (isNaN(index)) {
+            return NaN.HASH;
+        }
+        return Double.hashCode(getDouble(index));
+    }
+
+    @Override
+    public int compareItems(int index, Column other, int otherIndex) {
+        if (!(other instanceof NumericColumn)) {
+            return super.compareItems(index, other, otherIndex);
+        }
+
+        boolean aNaN = isNaN(index);
+        boolean bNaN = other.isNaN(otherIndex);
+        if (aNaN || bNaN) {
+            return Boolean.compare(aNaN, bNaN);
+        }
+        return Double.compare(getDouble(index), ((NumericColumn) other).getDouble(otherIndex));
+    }
+
+    @Override
+    public int compareItem(int index, Literal literal) {
+        if (!isNumber(literal)) {
+            return super.compareItem(index, literal);
+        }
+
+        if (isNaN(index)) {
+            return 1;
+        }
+        return Double.compare(getDouble(index), ((Number) literal.getObject()).doubleValue());
+    }
+
+    /** Returns the signs of compareTo style results operator holds for, as bit sign + 1. */
+    private static int holding(ComparisonOperator operator) {
+        return (operator.holds(-1) ? 1 : 0) | (operator.holds(0) ? 2 : 0) | (operator.holds(1) ? 4 : 0);
+    }
+
+    /** Keeps the rows satisfying the comparison without a branch per row: every position is
+     *  written to the next slot and the count only moves past it if the row satisfies it. A
+     *  NaN item is greater than every number and NOVALUE satisfies nothing. */
+    @Override
+    public int filter(int[] rows, int count, ComparisonOperator operator, Literal literal) {
+        if (!isNumber(literal)) {
+            return super.filter(rows, count, operator, literal);
+        }
+
+        int holding = holding(operator);
+        int nan = (holding >> 2) & 1;
+        byte[] markers = this.markers;
+        int kept = 0;
+        if (this instanceof IntColumn && literal instanceof IntLiteral) {
+            int[] values = ((IntColumn) this).values();
+            int b = ((IntLiteral) literal).getObject();
+            for (int i = 0; i < count; i++) {
+                int row = rows[i];
+                int holds = (holding >> (Integer.compare(values[row], b) + 1)) & 1;
+                byte marker = markers == null ? VALUE : markers[row];
+                rows[kept] = row;
+                kept += marker == VALUE ? holds : marker == NAN_MARKER ? nan : 0;
+            }
+            return kept;
+        }
+
+        double b = ((Number) literal.getObject()).doubleValue();
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            int holds = (holding >> (Double.compare(getDouble(row), b) + 1)) & 1;
+            byte marker = markers == null ? VALUE : markers[row];
+            rows[kept] = row;
+            kept += marker == VALUE ? holds : marker == NAN_MARKER ? nan : 0;
+        }
+        return kept;
+    }
+
+    @Override
+    public int filter(int[] rows, int count, ComparisonOperator operator, Column other) {
+        if (!(other instanceof NumericColumn)) {
+            return super.filter(rows, count, operator, other);
+        }
+
+        int holding = holding(operator);
+        NumericColumn numbers = (NumericColumn) other;
+        boolean ints = this instanceof IntColumn && other instanceof IntColumn;
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            int row = rows[i];
+            byte a = marker(row);
+            byte b = numbers.marker(row);
+            int sign;
+            if (a == NAN_MARKER || b == NAN_MARKER) {
+                sign = Boolean.compare(a == NAN_MARKER, b == NAN_MARKER);
+            } else if (ints) {
+                sign = Integer.compare(((IntColumn) this).getInt(row), ((IntColumn) other).getInt(row));
+            } else {
+                sign = Double.compare(getDouble(row), numbers.getDouble(row));
+            }
+            rows[kept] = row;
+            kept += a == NOVALUE_MARKER || b == NOVALUE_MARKER ? 0 : (holding >> (sign + 1)) & 1;
+        }
+        return kept;
+    }
+
+    /** Returns a new int column holding operator applied to o1 and o2 row by row. If
+     *  broadcast is set, o2 holds a single item that is applied to every row of o1. The
+     *  operator runs in one loop over the whole value arrays, special items included since
+     *  their value slots are zero, and the markers of the result are worked out in a
+     *  separate pass that is skipped when neither operand has special items and the
+     *  operator is always defined. */
+    static IntColumn evaluateInts(IntColumn o1, IntColumn o2, boolean broadcast,
+                                  ArithmeticOperator operator, String alias) {
+        int length = o1.length();
+        int[] a = o1.values();
+        int[] b = o2.values();
+        IntColumn result = new IntColumn(alias, length);
+        int[] values = result.values();
+        if (broadcast) {
+            operator.operate(a, b[0], values, length);
+        } else {
+            operator.operate(a, b, values, length);
+        }
+        byte[] markers = resultMarkers(o1, o2, broadcast, operator, length, true);
+        if (markers != null) {
+            for (int i = 0; i < length; i++) {
+                values[i] = markers[i] == VALUE ? values[i] : 0;
+            }
+        }
+        result.setMarkers(markers, length);
+        return result;
+    }
+
+    /** Returns a new float column holding operator applied to o1 and o2 row by row, with
+     *  the values of int operands widened, the same way evaluateInts does. */
+    static FloatColumn evaluateFloats(NumericColumn o1, NumericColumn o2, boolean broadcast,
+                                      ArithmeticOperator operator, String alias) {
+        int length = o1.length();
+        FloatColumn result = new FloatColumn(alias, length);
+        double[] values = result.values();
+        if (broadcast) {
+            operator.operate(doubles(o1, length), o2.getDouble(0), values, length);
+        } else {
+            operator.operate(doubles(o1, length), doubles(o2, length), values, length);
+        }
+        byte[] markers = resultMarkers(o1, o2, broadcast, operator, length, false);
+        if (markers != null) {
+            for (int i = 0; i < length; i++) {
+                values[i] = markers[i] == VALUE ? values[i] : 0;
+            }
+        }
+        result.setMarkers(markers, length);
+        return result;
+    }
+
+    /** Returns the first length values of column as doubles, without copying a float column. */
+    private static double[] doubles(NumericColumn column, int length) {
+        if (column instanceof FloatColumn) {
+            return ((FloatColumn) column).values();
+        }
+        int[] ints = ((IntColumn) column).values();
+        double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = ints[i];
+        }
+        return values;
+    }
+
+    /** Returns the markers of operator applied to o1 and o2 row by row, or null if every
+     *  result is a value. Two NOVALUEs give NOVALUE, a NaN or a right operand the operator
+     *  is undefined for gives NaN, tested as ints if ints is set. */
+    private static byte[] resultMarkers(NumericColumn o1, NumericColumn o2, boolean broadcast,
+                                        ArithmeticOperator operator, int length, boolean ints) {
+        boolean undefined = operator.hasUndefinedResults();
+        if (o1.markers == null && o2.markers == null && !undefined) {
+            return null;
+        }
+
+        byte[] markers = new byte[Math.max(length, 1)];
+        boolean special = false;
+        for (int i = 0; i < length; i++) {
+            int j = broadcast ? 0 : i;
+            byte a = o1.marker(i);
+            byte b = o2.marker(j);
+            if (a == NOVALUE_MARKER && b == NOVALUE_MARKER) {
+                markers[i] = NOVALUE_MARKER;
+            } else if (a == NAN_MARKER || b == NAN_MARKER || undefined
+                    && (ints ? operator.undefinedFor(((IntColumn) o2).getInt(j)) : operator.undefinedFor(o2.getDouble(j)))) {
+                markers[i] = NAN_MARKER;
+            } else {
+                continue;
+            }
+            special = true;
+        }
+        return special ? markers : null;
+    }
+}
@@ -0,0 +1,82 @@
+package db.table.RCTable;
+
+import db.expressions.ColumnExpression;
+import db.expressions.Condition;
+import db.table.Table;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * A step of a query pipeline. Each operator produces its result in batches of rows and
+ * pulls the batches it needs from its input only when its own next batch is asked for,
+ * so the rows between the steps of a query are never gathered into a whole table.
+ */
+public interface Operator {
+    int BATCH_SIZE = 1024;
+
+    /** Returns an empty table with the columns of the batches this operator produces. */
+    RCTable schema();
+
+    /** Returns the next batch of at most BATCH_SIZE rows, or null once every row has been
+     *  produced. Batches are never empty. */
+    RCTable next() throws RuntimeException;
+
+    /** Returns an operator producing the rows of this one that satisfy every condition,
+     *  or null if a condition doesn't have a comparison operator. */
+    default Operator filter(List<Condition> conditions) throws RuntimeException {
+        return FilterOperator.make(this, conditions);
+    }
+
+    /** Returns an operator producing the natural inner join of the rows of this operator
+     *  with table, in the same order as RCTable.join. */
+    default Operator join(Table table) {
+        return new JoinOperator(this, (RCTable) table);
+    }
+
+    /** Returns an operator producing the result of each column expression over the rows of
+     *  this operator. */
+    default Operator project(List<ColumnExpression> columnExpressions) throws RuntimeException {
+        return new ProjectOperator(this, columnExpressions);
+    }
+
+    /** Returns an operator producing a row for each group of rows of this operator with equal
+     *  values in the groupBy columns, holding those columns and then each aggregate. */
+    default Operator aggregate(List<String> groupBy, List<ColumnExpression> aggregates) throws RuntimeException {
+        return new HashAggregateOperator(this, groupBy, aggregates);
+    }
+
+    /** Returns an operator producing the rows of this operator sorted by the column called
+     *  column, spilling sorted runs of budget rows to disk when there are more rows. */
+    default Operator sort(String column, boolean descending, int budget) throws RuntimeException {
+        return new SortOperator(this, column, descending, budget);
+    }
+
+    /** Returns an operator producing the first count rows of this one. Operators that can
+     *  push the limit further down, towards the scan, do so, and a sort keeps only the first
+     *  count rows in a heap instead of sorting every row. */
+    default Operator limit(int count) {
+        return new LimitOperator(this, count);
+    }
+
+    /** Returns a table holding every row this operator produces. */
+    default RCTable collect() throws RuntimeException {
+        RCTable table = new RCTable(schema());
+        for (RCTable batch = next(); batch != null; batch = next()) {
+            table.append(batch);
+        }
+        return table;
+    }
+
+    /** Writes the string representation of the table this operator produces to out, a batch
+     *  at a time. The first batch is produced before anything is written, so a query that
+     *  fails on its first rows writes nothing. */
+    default void write(Writer out) throws IOException, RuntimeException {
+        RCTable batch = next();
+        schema().write(out);
+        for (; batch != null; batch = next()) {
+            batch.writeRows(out);
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package db.table.RCTable;
+
+import db.literals.Literal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An ordered index over one column of a table, kept in a B+tree. The leaves hold row
+ * positions sorted by the item at that position the same way the comparison operators
+ * order items, with NaN after every other value, and rows with equal items by position.
+ * Rows holding NOVALUE never satisfy a comparison, so they are kept out of the tree.
+ * A range condition walks the linked leaves from the first row that satisfies it, and
+ * every row can be read back in key order.
+ */
+public class OrderedIndex extends Index {
+    private static final int CAPACITY = 64;
+
+    private Node root;
+    private Leaf first;
+    private int[] novalues = new int[NumericColumn.DEFAULT_CAPACITY];
+    private int novalueCount;
+
+    // The smallest key of the node split off last, which goes into its parent.
+    private int promoted;
+
+    /** A node holds up to CAPACITY keys, with room for one more before it is split. */
+    private abstract static class Node {
+        int[] keys = new int[CAPACITY + 1];
+        int size;
+    }
+
+    private static class Leaf extends Node {
+        Leaf next;
+    }
+
+    /** Child i holds the keys below keys[i], child i + 1 the keys from keys[i] on. */
+    private static class Inner extends Node {
+        Node[] children = new Node[CAPACITY + 2];
+    }
+
+    /** Creates an index called name over every row currently in column. The rows are sorted
+     *  once and the tree is built bottom up from full leaves. */
+    OrderedIndex(String name, Column column) {
+        super(name, column);
+
+        List<Integer> rows = new ArrayList<>();
+        for (int row = 0; row < column.length(); row++) {
+            if (column.isNOVALUE(row)) {
+                addNOVALUE(row);
+            } else {
+                rows.add(row);
+            }
+        }
+        rows.sort(this::compare);
+        build(rows);
+    }
+
+    /** Compares the keys of rows a and b. */
+    private int compare(int a, int b) {
+        int c = indexed().compareItems(a, indexed(), b);
+        return c != 0 ? c : Integer.compare(a, b);
+    }
+
+    /** Compares the item at position row with literal. */
+    private int compare(int row, Literal literal) {
+        return indexed().compareItem(row, literal);
+    }
+
+    /** Builds the tree over rows, which are sorted by key. */
+    private void build(List<Integer> rows) {
+        List<Node> level = new ArrayList<>();
+        List<Integer> smallest = new ArrayList<>();
+        Leaf previous = null;
+        for (int i = 0; i < rows.size() || level.isEmpty(); i += CAPACITY) {
+            Leaf leaf = new Leaf();
+            for (int j = i; j < Math.min(i + CAPACITY, rows.size()); j++) {
+                leaf.keys[leaf.size++] = rows.get(j);
+            }
+            if (previous == null) {
+                first = leaf;
+            } else {
+                previous.next = leaf;
+            }
+            previous = leaf;
+            level.add(leaf);
+            smallest.add(leaf.size > 0 ? leaf.keys[0] : -1);
+        }
+
+        while (level.size() > 1) {
+            List<Node> parents = new ArrayList<>();
+            List<Integer> parentSmallest = new ArrayList<>();
+            for (int i = 0; i < level.size(); i += CAPACITY + 1) {
+                Inner inner = new Inner();
+                int end = Math.min(i + CAPACITY + 1, level.size());
+                for (int j = i; j < end; j++) {
+                    if (j > i) {
+                        inner.keys[inner.size++] = smallest.get(j);
+                    }
+                    inner.children[j - i] = level.get(j);
+                }
+                parents.add(inner);
+                parentSmallest.add(smallest.get(i));
+            }
+            level = parents;
+            smallest = parentSmallest;
+        }
+        root = level.get(0);
+    }
+
+    /** Records a row holding NOVALUE. */
+    private void addNOVALUE(int row) {
+        if (novalueCount == novalues.length) {
+            novalues = Arrays.copyOf(novalues, novalueCount * 2);
+        }
+        novalues[novalueCount++] = row;
+    }
+
+    @Override
+    void add(int row) {
+        if (indexed().isNOVALUE(row)) {
+            addNOVALUE(row);
+            return;
+        }
+
+        Node split = insert(root, row);
+        if (split != null) {
+            Inner top = new Inner();
+            top.children[0] = root;
+            top.children[1] = split;
+            top.keys[0] = promoted;
+            top.size = 1;
+            root = top;
+        }
+    }
+
+    /** Returns the position of the first key of node greater than the key of row. */
+    private int upper(Node node, int row) {
+        int low = 0;
+        int high = node.size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(node.keys[mid], row) > 0) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return low;
+    }
+
+    /** Inserts row below node and returns the node split off it, or null if it wasn't split. */
+    private Node insert(Node node, int row) {
+        int position = upper(node, row);
+        if (node instanceof Leaf) {
+            System.arraycopy(node.keys, position, node.keys, position + 1, node.size - position);
+            node.keys[position] = row;
+            node.size++;
+            return node.size > CAPACITY ? splitLeaf((Leaf) node) : null;
+        }
+
+        Inner inner = (Inner) node;
+        Node split = insert(inner.children[position], row);
+        if (split == null) {
+            return null;
+        }
+        System.arraycopy(inner.keys, position, inner.keys, position + 1, inner.size - position);
+        System.arraycopy(inner.children, position + 1, inner.children, position + 2, inner.size - position);
+        inner.keys[position] = promoted;
+        inner.children[position + 1] = split;
+        inner.size++;
+        return inner.size > CAPACITY ? splitInner(inner) : null;
+    }
+
+    /** Moves the upper half of leaf into a new leaf after it. */
+    private Leaf splitLeaf(Leaf leaf) {
+        Leaf right = new Leaf();
+        int mid = leaf.size / 2;
+        right.size = leaf.size - mid;
+        System.arraycopy(leaf.keys, mid, right.keys, 0, right.size);
+        leaf.size = mid;
+        right.next = leaf.next;
+        leaf.next = right;
+        promoted = right.keys[0];
+        return right;
+    }
+
+    /** Moves the upper half of inner into a new node, promoting the key between them. */
+    private Inner splitInner(Inner inner) {
+        Inner right = new Inner();
+        int mid = inner.size / 2;
+        promoted = inner.keys[mid];
+        right.size = inner.size - mid - 1;
+        System.arraycopy(inner.keys, mid + 1, right.keys, 0, right.size);
+        System.arraycopy(inner.children, mid + 1, right.children, 0, right.size + 1);
+        Arrays.fill(inner.children, mid + 1, inner.size + 1, null);
+        inner.size = mid;
+        return right;
+    }
+
+    @Override
+    boolean answers(String operator, Literal literal) {
+        switch (operator) {
+            case "==":
+            case "<":
+            case "<=":
+            case ">":
+            case ">=":
+                return comparable(literal);
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    int[] lookup(String operator, Literal literal) {
+        int[] rows = range(operator, literal);
+        Arrays.sort(rows);
+        return rows;
+    }
+
+    /** Returns the positions of the rows whose item satisfies operator against literal, in
+     *  key order. */
+    int[] range(String operator, Literal literal) {
+        Leaf leaf = first;
+        int slot = 0;
+
+        // Conditions with a lower bound start at the first row that satisfies it.
+        if (!operator.startsWith("<")) {
+            boolean strict = operator.equals(">");
+            Node node = root;
+            while (node instanceof Inner) {
+                int child = 0;
+                while (child < node.size && before(node.keys[child], literal, strict)) {
+                    child++;
+                }
+                node = ((Inner) node).children[child];
+            }
+            leaf = (Leaf) node;
+            while (slot < leaf.size && before(leaf.keys[slot], literal, strict)) {
+                slot++;
+            }
+        }
+
+        int[] rows = new int[NumericColumn.DEFAULT_CAPACITY];
+        int count = 0;
+        for (; leaf != null; leaf = leaf.next, slot = 0) {
+            for (; slot < leaf.size; slot++) {
+                int row = leaf.keys[slot];
+                if (!belowUpperBound(row, operator, literal)) {
+                    return Arrays.copyOf(rows, count);
+                }
+                if (count == rows.length) {
+                    rows = Arrays.copyOf(rows, count * 2);
+                }
+                rows[count++] = row;
+            }
+        }
+        return Arrays.copyOf(rows, count);
+    }
+
+    /** Returns whether the key of row comes before the rows satisfying a lower bound of
+     *  literal, which includes rows equal to it unless strict. */
+    private boolean before(int row, Literal literal, boolean strict) {
+        int c = compare(row, literal);
+        return strict ? c <= 0 : c < 0;
+    }
+
+    /** Returns whether row, reached in key order, is still within the upper bound of operator. */
+    private boolean belowUpperBound(int row, String operator, Literal literal) {
+        switch (operator) {
+            case "<":
+                return compare(row, literal) < 0;
+            case "<=":
+            case "==":
+                return compare(row, literal) <= 0;
+            default:
+                return true;
+        }
+    }
+
+    /** Returns the positions of every row in key order, descending if descending is set,
+     *  followed by the rows holding NOVALUE. Rows with equal keys are in ascending order. */
+    int[] inOrder(boolean descending) {
+        int[] rows = new int[indexed().length()];
+        int count = 0;
+        for (Leaf leaf = first; leaf != null; leaf = leaf.next) {
+            System.arraycopy(leaf.keys, 0, rows, count, leaf.size);
+            count += leaf.size;
+        }
+        System.arraycopy(novalues, 0, rows, count, novalueCount);
+
+        // Reversing the keys reverses the rows of each key too, so those are turned back.
+        if (descending) {
+            reverse(rows, 0, count);
+            for (int start = 0, end; start < count; start = end) {
+                end = start + 1;
+                while (end < count && indexed().compareItems(rows[start], indexed(), rows[end]) == 0) {
+                    end++;
+                }
+                reverse(rows, start, end);
+            }
+        }
+        return rows;
+    }
+
+    /** Reverses the order of rows in [from, to). */
+    private static void reverse(int[] rows, int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            int row = rows[i];
+            rows[i] = rows[j];
+            rows[j] = row;
+        }
+    }
+}
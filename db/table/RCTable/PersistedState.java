@@ -0,0 +1,41 @@
+package db.table.RCTable;
+
+/**
+ * Records what the file of a table held when the table was last loaded or stored: how many
+ * of its rows, the size of the file, whether it was in the binary format and in how many
+ * segments. Rows are only ever appended to a table, so while the file is still that size,
+ * storing the table again only has to append the rows added since.
+ */
+public class PersistedState {
+    private int rows;
+    private long fileSize;
+    private boolean binary;
+    private int segments;
+
+    public PersistedState(int rows, long fileSize, boolean binary, int segments) {
+        this.rows = rows;
+        this.fileSize = fileSize;
+        this.binary = binary;
+        this.segments = segments;
+    }
+
+    /** Returns how many rows of the table the file holds. */
+    public int rows() {
+        return rows;
+    }
+
+    /** Returns the size of the file in bytes. */
+    public long fileSize() {
+        return fileSize;
+    }
+
+    /** Returns whether the file is in the binary format. */
+    public boolean binary() {
+        return binary;
+    }
+
+    /** Returns how many segments the rows are split into, one for a text file. */
+    public int segments() {
+        return segments;
+    }
+}
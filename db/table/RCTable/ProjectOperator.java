@@ -0,0 +1,148 @@
+package db.table.RCTable;
+
+import db.expressions.ColumnExpression;
+import db.expressions.Expression;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Evaluates column expressions over each batch of its input. The expressions are bound
+ * once to the columns of the input. Every input row gives one output row, so a limit is
+ * applied to the input instead.
+ *
+ * Once the input has produced the parallel threshold of rows, the following batches are
+ * gathered into chunks of about a morsel of rows that are projected on the common pool,
+ * with a chunk per thread of the pool being projected ahead of the batches taken. The
+ * projected batches are passed on in input order.
+ */
+class ProjectOperator implements Operator {
+    private Operator input;
+    private List<Expression> expressions = new ArrayList<>();
+    private long rows;
+
+    // The chunks being projected in parallel, the projected batches of the chunk taken
+    // last and the error projecting it stopped at, and an error the input failed with
+    // that is reported once the chunks before it have been passed on.
+    private Morsels.Window<Morsels.Batches> window;
+    private Iterator<RCTable> ready = Collections.emptyIterator();
+    private RuntimeException failure;
+    private RuntimeException inputFailure;
+    private boolean inputDone;
+
+    ProjectOperator(Operator input, List<ColumnExpression> columnExpressions) throws RuntimeException {
+        this.input = input;
+        List<Column> columns = input.schema().columns();
+        for (ColumnExpression expr : columnExpressions) {
+            expressions.add(expr.bind(columns));
+        }
+    }
+
+    private ProjectOperator(Operator input, ProjectOperator projection) {
+        this.input = input;
+        this.expressions = projection.expressions;
+    }
+
+    @Override
+    public Operator limit(int count) {
+        return new ProjectOperator(input.limit(count), this);
+    }
+
+    @Override
+    public RCTable schema() {
+        List<Column> columns = new ArrayList<>();
+        for (Expression expr : expressions) {
+            columns.add(Column.make(expr.name(), expr.type()));
+        }
+        return new RCTable(columns);
+    }
+
+    @Override
+    public RCTable next() throws RuntimeException {
+        if (window == null && Morsels.parallel(rows)) {
+            window = new Morsels.Window<>();
+        }
+        if (window != null) {
+            return nextInParallel();
+        }
+
+        RCTable batch = input.next();
+        if (batch == null) {
+            return null;
+        }
+        rows += batch.numRows();
+        return project(batch);
+    }
+
+    /** Returns the expressions evaluated over batch. */
+    private RCTable project(RCTable batch) throws RuntimeException {
+        List<Column> projected = new ArrayList<>();
+        for (Expression expr : expressions) {
+            projected.add(expr.evaluate(batch.columns()));
+        }
+        return new RCTable(projected);
+    }
+
+    /** Returns the next batch of the chunks projected in parallel. */
+    private RCTable nextInParallel() throws RuntimeException {
+        while (!ready.hasNext()) {
+            if (failure != null) {
+                throw failure;
+            }
+            while (!inputDone && !window.isFull()) {
+                List<RCTable> chunk = chunk();
+                if (!chunk.isEmpty()) {
+                    window.submit(() -> projectAll(chunk));
+                }
+            }
+            if (window.isEmpty()) {
+                if (inputFailure != null) {
+                    throw inputFailure;
+                }
+                return null;
+            }
+            Morsels.Batches projected = window.take();
+            ready = projected.batches.iterator();
+            failure = projected.error;
+        }
+        return ready.next();
+    }
+
+    /** Returns the next batches of the input, about a morsel of rows of them. */
+    private List<RCTable> chunk() {
+        List<RCTable> chunk = new ArrayList<>();
+        int chunkRows = 0;
+        while (chunkRows < Morsels.MORSEL_ROWS) {
+            RCTable batch;
+            try {
+                batch = input.next();
+            } catch (RuntimeException e) {
+                inputFailure = e;
+                batch = null;
+            }
+            if (batch == null) {
+                inputDone = true;
+                break;
+            }
+            chunk.add(batch);
+            chunkRows += batch.numRows();
+        }
+        return chunk;
+    }
+
+    /** Returns every batch of chunk projected, up to the error projecting one of them
+     *  stopped at. */
+    private Morsels.Batches projectAll(List<RCTable> chunk) {
+        Morsels.Batches projected = new Morsels.Batches();
+        try {
+            for (RCTable batch : chunk) {
+                projected.batches.add(project(batch));
+            }
+        } catch (RuntimeException e) {
+            projected.error = e;
+        }
+        return projected;
+    }
+}
@@ -1,48 +1,58 @@
 package db.table.RCTable;
 
+import db.expressions.ColumnExpression;
+import db.expressions.ColumnReference;
+import db.expressions.Condition;
+import db.expressions.Conjunction;
+import db.expressions.Expression;
+import db.expressions.Predicate;
 import db.literals.Literal;
-import db.operators.Operator;
 import db.operators.comparison.ComparisonOperator;
 import db.table.Table;
 
 import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.ArrayList;
 
 /**
  * Created by admohanraj on 2/16/17.
- * A RCTable object has rows and columns that store miscellaneous data.
- * The columns each store a specific type.
+ * A RCTable object has columns that store miscellaneous data.
+ * The columns each store a specific type, rows are views over a position in the columns.
  */
 public class RCTable implements Table {
     private String name;
     private List<Column> columns;
-    private List<Row> rows;
+    private PersistedState persisted;
+    private List<Index> indexes = new ArrayList<>();
+    private List<ZoneMap> zones;
 
     /** Initializes empty table. */
     public RCTable() {
         name = "";
         columns = new ArrayList<>();
-        rows = new ArrayList<>();
     }
 
-    /** Initializes table with columns. */
+    /** Initializes table with columns. Projected columns may share their storage with another table. */
     public RCTable(List<Column> columns) {
         name = "";
         this.columns = new ArrayList<>(columns);
-        updateRowsToMatchColumns();
     }
 
     /** Creates a new empty table with same columns as the given table. */
     public RCTable(RCTable table) {
         List<Column> cols = new ArrayList<>();
         for (Column c : table.columns()) {
-            Column cop = new Column(c.name(), c.type());
+            Column cop = Column.make(c.name(), c.type());
             cols.add(cop);
         }
         name = "";
         columns = cols;
-        rows = new ArrayList<>();
     }
 
     /** Returns a list of columns with the given names and types. */
@@ -53,9 +63,7 @@ public class RCTable implements Table {
             String name = names.get(i);
             String type = types.get(i);
 
-            List<Literal> columnList = new ArrayList<>();
-
-            Column column = new Column(name, type, columnList);
+            Column column = Column.make(name, type);
             columns.add(column);
         }
         return columns;
@@ -68,141 +76,211 @@ public class RCTable implements Table {
 
     private static List<Column> getColumnsFromExpressions(Table table, List<String> columnExpressions) throws RuntimeException {
         // Go through the column expressions and evaluate each one.
+        RCTable source = (RCTable) table;
         List<Column> columns = new ArrayList<>();
-        for(String colExpression : columnExpressions) {
-            Column evaluated = ((RCTable) table).evaluateColumnExpression(colExpression);
-
-            // Return a null table, the evaluation failed.
-            if (evaluated == null) {
-                throw new RuntimeException("ERROR: Column expression failed to evaluate.");
-            }
-
-            columns.add(evaluated);
+        for (String colExpression : columnExpressions) {
+            columns.add(source.evaluate(ColumnExpression.parse(colExpression).bind(source.columns)));
         }
 
         return columns;
     }
 
+    /** Sets the number of rows from which filtering a table and evaluating its column
+     *  expressions are split into morsels that run in parallel. */
+    public static void setParallelThreshold(int rows) {
+        Morsels.setParallelThreshold(rows);
+    }
+
+    /** Returns expression evaluated over the rows of this table. A column reference is
+     *  returned as is, other expressions are evaluated a morsel at a time and the parts
+     *  are concatenated in row order. */
+    private Column evaluate(Expression expression) throws RuntimeException {
+        int rows = numRows();
+        if (expression instanceof ColumnReference) {
+            return expression.evaluate(columns);
+        }
+        List<Column> parts = Morsels.map(rows, (from, to) ->
+                expression.evaluate(from == 0 && to == rows ? columns : slice(from, to)));
+        Column result = parts.get(0);
+        for (int i = 1; i < parts.size(); i++) {
+            result.addAll(parts.get(i));
+        }
+        return result;
+    }
+
+    /** Returns the columns of this table cut down to the rows in [from, to). A column is
+     *  only copied once an expression reads it. */
+    private List<Column> slice(int from, int to) {
+        int[] rows = new int[to - from];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = from + i;
+        }
+        Column[] sliced = new Column[columns.size()];
+        return new AbstractList<Column>() {
+            @Override
+            public Column get(int index) {
+                if (sliced[index] == null) {
+                    sliced[index] = columns.get(index).select(rows, rows.length);
+                }
+                return sliced[index];
+            }
+
+            @Override
+            public int size() {
+                return sliced.length;
+            }
+        };
+    }
+
     /** Initializes a table with the given column expressions.*/
     public RCTable(Table table, List<String> columnExpressions) throws RuntimeException {
         this(getColumnsFromExpressions(table, columnExpressions));
     }
 
-    /** Updates the rows to match the data stored in the columns. */
-    private void updateRowsToMatchColumns() {
-        this.rows = new ArrayList<>();
-        if (columns.size() == 0) {
-            return;
+    /** Appends the row at position index of source, which must have the same columns as this table. */
+    private void addRow(RCTable source, int index) {
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).addItem(source.columns.get(i), index);
         }
+    }
 
-        // Update the rows to match the columns.
-        int columnLength = columns.get(0).length();
-        for (int i = 0; i < columnLength; i++) {
-            // Create an empty list of columns.
-            List<Column> rowCols = new ArrayList<>();
+    /** Adds a row with the given values to this table. */
+    public void addRow(List<String> values) throws IOException {
+        if (values.size() != columns.size()) {
+            throw new IOException("Error! Cannot add row! Size mismatch!");
+        }
 
-            // Create length 1 columns and store it.
-            for (Column col : columns) {
-                Column newC = new Column(col.name(), col.type());
-                newC.addItem(col.getItem(i));
-                rowCols.add(newC);
+        // Parses every value before touching the columns so a bad row leaves the table unchanged.
+        Literal[] items = new Literal[values.size()];
+        for (int i = 0; i < items.length; i++) {
+            items[i] = Literal.make(values.get(i), columns.get(i).type());
+            if (items[i] == null) {
+                throw new IOException("Error! Cannot add row! Type mismatch!");
             }
-
-            // Construct row from list of columns and add it to rows.
-            Row row = new Row(rowCols);
-            rows.add(row);
         }
-    }
 
-    /** Rebuilds the columns to match the data stored in the rows. */
-    private void updateColumnsToMatchRows() {
-        if (rows.size() == 0) {
-            for (Column c: columns) {
-                c.clearData();
+        for (int i = 0; i < items.length; i++) {
+            columns.get(i).addItem(items[i]);
+        }
+        for (Index index : indexes) {
+            index.add(numRows() - 1);
+        }
+        if (zones != null) {
+            for (ZoneMap zone : zones) {
+                if (zone != null) {
+                    zone.update();
+                }
             }
-            return;
         }
+    }
 
-        this.columns = new ArrayList<>();
+    /** Builds an index called name over the column called column, a B+tree if ordered and a
+     *  hash index otherwise. The index is kept up to date as rows are added. */
+    public void createIndex(String name, String column, boolean ordered) throws RuntimeException {
+        Column indexed = getColumn(column);
+        indexes.add(ordered ? new OrderedIndex(name, indexed) : new HashIndex(name, indexed));
+    }
 
-        // Update the columns to match the rows.
-        int rowWidth = rows.get(0).width();
-        for (int i = 0; i < rowWidth; i++) {
-            // Creates an empty column
-            Column current = new Column(rows.get(0).getColumnName(i), rows.get(0).getColumnType(i));
+    /** Returns the indexes of this table. Clones and derived tables start without any. */
+    public List<Index> indexes() {
+        return Collections.unmodifiableList(indexes);
+    }
 
-            for (int j = 0; j < rows.size(); j++) {
-                current.addItem(rows.get(j).getItem(i));
+    /** Returns the hash index over the column called column, or null if there is none. */
+    HashIndex hashIndex(String column) {
+        for (Index index : indexes) {
+            if (index instanceof HashIndex && index.column().equals(column)) {
+                return (HashIndex) index;
             }
-
-            columns.add(current);
         }
+        return null;
     }
 
-    /** Updates the columns to match the data stored in the rows. */
-    private void fastUpdateColumnsToMatchRow(Row row) {
-        // Update the columns to match the rows.
-        int rowWidth = rows.get(0).width();
-        for (int i = 0; i < rowWidth; i++) {
-            columns.get(i).addItem(row.getItem(i));
+    /** Returns the ordered index over the column called column, or null if there is none. */
+    private OrderedIndex orderedIndex(String column) {
+        for (Index index : indexes) {
+            if (index instanceof OrderedIndex && index.column().equals(column)) {
+                return (OrderedIndex) index;
+            }
         }
+        return null;
     }
 
-    /** Takes in a row and adds it to this table. */
-    private void addRow(Row row) throws IOException {
-        if (row.width() != columns.size() && columns.size() != 0) {
-            // Throw error message here.
-            throw new IOException("Error! Cannot add row! Size mismatch!");
-        }
-        rows.add(row);
-
-        if (columns().isEmpty()) {
-            updateColumnsToMatchRows();
-        } else {
-            fastUpdateColumnsToMatchRow(row);
+    /** Returns the ascending positions of the only rows that can satisfy conditions, found
+     *  through an index for a comparison of a column with a literal, or null if no index applies. */
+    private int[] indexed(List<Condition> conditions) {
+        for (Condition condition : conditions) {
+            Literal literal = condition.comparesColumns() ? null : Literal.make(condition.operand());
+            if (literal == null) {
+                continue;
+            }
+            for (Index index : indexes) {
+                if (index.column().equals(condition.column()) && index.answers(condition.operator(), literal)) {
+                    return index.lookup(condition.operator(), literal);
+                }
+            }
         }
+        return null;
     }
 
-    /** Adds a row with the given values to this table. */
-    public void addRow(List<String> values) throws IOException {
-        List<String> names = this.columnNames();
-        List<String> types = this.columnTypes();
-
-        // Makes a row with the given information
-        Row row = new Row(names, types, values);
-
-        if (row.isNullRow()) {
-            throw new IOException("Error! Cannot add row! Size mismatch!");
+    /** Returns the zone map of each column, or null for a column that can't have one. The
+     *  zone maps are built the first time they are needed and brought up to date with the
+     *  rows added since. Clones and derived tables start without any. */
+    private List<ZoneMap> zoneMaps() {
+        if (zones == null) {
+            zones = new ArrayList<>();
+            for (Column c : columns) {
+                zones.add(ZoneMap.supports(c) ? new ZoneMap(c) : null);
+            }
         }
-
-        if (row.width() != columns.size() && columns.size() != 0) {
-            // Throw error message here.
-            throw new IOException("Error! Cannot add row! Size mismatch!");
+        for (ZoneMap zone : zones) {
+            if (zone != null) {
+                zone.update();
+            }
         }
-        rows.add(row);
-        fastUpdateColumnsToMatchRow(row);
+        return zones;
     }
 
-    /** Returns a list of names of the columns stored in the table. */
-    private List<String> columnNames() {
-        List<String> names = new ArrayList<>();
-        for (Column c: columns) {
-            names.add(c.name());
+    /** Extends the zone maps over the rows from position start on, which were read back
+     *  from a file along with pieces, the stored zone map of each column. */
+    void restoreZones(int[][] pieces, int start) {
+        if (start == 0 && zones == null) {
+            zones = new ArrayList<>();
+            for (Column c : columns) {
+                zones.add(ZoneMap.supports(c) ? new ZoneMap(c) : null);
+            }
+        }
+        if (zones == null) {
+            return;
+        }
+        for (int i = 0; i < zones.size(); i++) {
+            if (zones.get(i) != null) {
+                zones.get(i).restore(pieces[i], start, numRows());
+            }
         }
-        return names;
     }
 
-    /** Returns a list of types of the columns stored in the table. */
-    private List<String> columnTypes() {
-        List<String> types = new ArrayList<>();
-        for (Column c: columns) {
-            types.add(c.type());
+    /** Returns the comparisons of a column with a literal among conditions that are checked
+     *  against the zone maps, or null if there are none. Only the conditions before the
+     *  first comparison of two columns are, since rows are tested in the order of the
+     *  conditions. */
+    private ZoneMap.Filter zoneFilter(List<Condition> conditions) throws RuntimeException {
+        ZoneMap.Filter filter = new ZoneMap.Filter();
+        for (Condition condition : conditions) {
+            Literal literal = condition.comparesColumns() ? null : Literal.make(condition.operand());
+            if (literal == null) {
+                break;
+            }
+            ZoneMap zone = zoneMaps().get(ColumnReference.ordinal(columns, condition.column()));
+            if (zone != null) {
+                filter.add(zone, (ComparisonOperator) db.operators.Operator.getOperator(condition.operator()), literal);
+            }
         }
-        return types;
+        return filter.isEmpty() ? null : filter;
     }
 
     /** Gets the column with the given name in this table. */
-    private Column getColumn(String name) throws RuntimeException {
+    Column getColumn(String name) throws RuntimeException {
         for (Column c : columns) {
             if (c.name().equals(name)) {
                 return c;
@@ -212,151 +290,154 @@ public class RCTable implements Table {
     }
 
     /** Returns whether or not this table has the given column. */
-    private boolean hasColumn(String name) {
-        try {
-            getColumn(name);
-            return true;
-        } catch (RuntimeException e) {
-            return false;
+    public boolean hasColumn(String name) {
+        for (Column c : columns) {
+            if (c.name().equals(name)) {
+                return true;
+            }
         }
+        return false;
     }
 
-    /** Parses and evaluates a column expression in the context of this table. */
-    private Column evaluateColumnExpression(String expr) throws RuntimeException {
-        String[] subexpressions = expr.split("\\s+");
-
-        // Single operand means it must be a column name.
-        if (subexpressions.length == 1) {
-            // Retrieves the column from the table.
-            return this.getColumn(subexpressions[0]);
-        } else if (subexpressions.length == 3 && subexpressions[1].equals("as")) {
-            // This expression is formatted correctly.
-            String alias = subexpressions[2];
-
-            // Split compound on arithmetic operator.
-            String compound = subexpressions[0];
-            String[] compoundExpressions = compound.split("(\\+|-|\\*|/)");
-            if (compoundExpressions.length != 2) {
-                throw new RuntimeException("ERROR: Arithmetic Expression not formatted correctly!");
-            }
-
-            Column operand0 = this.getColumn(compoundExpressions[0]);
-            String operator = compound.substring(compoundExpressions[0].length(), compound.length() - compoundExpressions[1].length());
-
-            Column operand1;
-            try {
-                operand1 = this.getColumn(compoundExpressions[1]);
-            } catch (RuntimeException e) {
-                // Treat compoundExpressions[2] as a literal.
-                Literal operandLiteral1 = Literal.make(compoundExpressions[1]);
-                if (operandLiteral1 == null) {
-                    throw new RuntimeException("ERROR: Operand 2 is neither a column nor a literal.");
-                }
-
-                return Column.evaluate(operand0, operandLiteral1, operator, alias);
-            }
-
-            return Column.evaluate(operand0, operand1, operator, alias);
-
-        } else if(subexpressions.length == 5 && subexpressions[3].equals("as")) {
-            // This expression is formatted correctly.
-            Column operand0 = this.getColumn(subexpressions[0]);
-            String alias = subexpressions[4];
-            String operator = subexpressions[1];
-            Column operand1;
-            try {
-                operand1 = this.getColumn(subexpressions[2]);
-            } catch (RuntimeException e) {
-                // Treat subexpressions[2] as a literal.
-                Literal operandLiteral1 = Literal.make(subexpressions[2]);
-                if (operandLiteral1 == null) {
-                    throw new RuntimeException("ERROR: Operand 2 is neither a column nor a literal.");
-                }
-                return Column.evaluate(operand0, operandLiteral1, operator, alias);
-            }
-
-            return Column.evaluate(operand0, operand1, operator, alias);
+    /** Returns a new table holding the result of each parsed column expression. */
+    public RCTable project(List<ColumnExpression> columnExpressions) throws RuntimeException {
+        List<Column> projected = new ArrayList<>();
+        for (ColumnExpression expr : columnExpressions) {
+            projected.add(evaluate(expr.bind(columns)));
         }
-        // If not properly formatted, return null.
-        throw new RuntimeException("ERROR: Column expression is not valid.");
+        return new RCTable(projected);
     }
 
     /** Returns a new filtered table of all rows in this table that don't match the condition. */
     public RCTable filterTableByCondition(String condition) throws RuntimeException {
+        return filterTableByConditions(Collections.singletonList(condition));
+    }
 
-        //**** STAGE 1: PARSING THE CONDITIONAL EXPRESSION ****//
-
-        String[] subexpressions = condition.split(">=|<=|==|!=|>|<");
+    /** Returns a new filtered table of the rows in this table that satisfy every condition. */
+    public RCTable filterTableByConditions(List<String> conditions) throws RuntimeException {
+        List<Condition> parsed = new ArrayList<>();
+        for (String condition : conditions) {
+            parsed.add(Condition.parse(condition));
+        }
+        return filter(parsed);
+    }
 
-        // Malformed conditional expression
-        if (subexpressions.length != 2) {
-            throw new RuntimeException("ERROR: Malformed conditional expression!");
+    /** Returns a new filtered table of the rows in this table that satisfy every parsed condition.
+     *  The conditions are bound once, the rows are tested in a single scan that records the
+     *  positions of qualifying rows, and the filtered table is built from those positions.
+     *  Blocks of rows the zone maps rule out are passed over without testing their rows, and
+     *  the rest are tested a batch at a time. Large tables are scanned a morsel at a time in
+     *  parallel, and the positions each morsel keeps are concatenated in row order. */
+    public RCTable filter(List<Condition> conditions) throws RuntimeException {
+        Predicate predicate = bind(conditions, columns);
+        if (predicate == null) {
+            return null;
         }
-        String op = condition.substring(subexpressions[0].length(), condition.length() - subexpressions[1].length());
-        String o2 = subexpressions[1].trim();
 
+        // An indexed equality narrows the rows to test down to the ones it matches.
+        int[] candidates = indexed(conditions);
+        ZoneMap.Filter zoneFilter = candidates == null ? zoneFilter(conditions) : null;
+        int rowCount = candidates == null ? numRows() : candidates.length;
+        List<int[]> parts = Morsels.map(rowCount, (from, to) -> filter(predicate, candidates, zoneFilter, from, to));
 
-        String col0Name = subexpressions[0].trim();
-        // If the first column doesn't exist in the table
-        if (!hasColumn(col0Name)) {
-            throw new RuntimeException("ERROR: First column doesn't exist in the table!");
+        int selected = 0;
+        for (int[] part : parts) {
+            selected += part.length;
         }
-
-        ComparisonOperator condOperator;
-        try {
-            condOperator = (ComparisonOperator) Operator.getOperator(op);
-        } catch (Exception e) {
-            throw new RuntimeException("ERROR: Invalid operator!");
+        int[] selection = parts.get(0);
+        if (parts.size() > 1) {
+            selection = new int[selected];
+            int position = 0;
+            for (int[] part : parts) {
+                System.arraycopy(part, 0, selection, position, part.length);
+                position += part.length;
+            }
         }
+        return select(selection, selected);
+    }
 
-        // Invalid operator symbol.
-        if (condOperator == null) {
-            return null;
+    /** Returns the positions of the rows in [from, to) of candidates, or of the table if
+     *  there are no candidates, that satisfy predicate, skipping the blocks zoneFilter rules
+     *  out. from must start a zone map block. */
+    private int[] filter(Predicate predicate, int[] candidates, ZoneMap.Filter zoneFilter, int from, int to)
+            throws RuntimeException {
+        int[] selection = new int[to - from];
+        int[] batch = new int[Operator.BATCH_SIZE];
+        int selected = 0;
+        for (int i = from; i < to; ) {
+            int count = 0;
+            for (; i < to && count < batch.length; i++) {
+                if (zoneFilter != null && i % ZoneMap.BLOCK_SIZE == 0 && zoneFilter.skips(i / ZoneMap.BLOCK_SIZE)) {
+                    i += ZoneMap.BLOCK_SIZE - 1;
+                    continue;
+                }
+                batch[count++] = candidates == null ? i : candidates[i];
+            }
+            count = predicate.filter(columns, batch, count);
+            System.arraycopy(batch, 0, selection, selected, count);
+            selected += count;
         }
+        return selected == selection.length ? selection : Arrays.copyOf(selection, selected);
+    }
 
-        boolean isUnaryExpression = true;
-        String col1Name = null;
-        Literal literal;
+    /** Binds every condition to columns and returns their conjunction, or null if a
+     *  condition doesn't have a comparison operator. */
+    static Predicate bind(List<Condition> conditions, List<Column> columns) throws RuntimeException {
+        List<Predicate> predicates = new ArrayList<>();
+        for (Condition condition : conditions) {
+            Predicate bound = condition.bind(columns);
 
-        // It's not a literal, check if it's a column name.
-        if (!Literal.isLiteral(o2)) {
-            // Second column doesn't exist.
-            if (!hasColumn(o2)) {
-                throw new RuntimeException("ERROR: Second operator is not a column/literal!");
+            // Invalid operator symbol.
+            if (bound == null) {
+                return null;
             }
-
-            isUnaryExpression = false;
-            col1Name = o2;
+            predicates.add(bound);
         }
+        return new Conjunction(predicates);
+    }
 
-        literal = Literal.make(o2);
-
-        //**** STAGE 2: FILTER THE TABLE WITH THE PARSED EXPRESSION. ****//
+    /** Returns an operator that reads the rows of this table satisfying every condition a
+     *  batch at a time, or null if a condition doesn't have a comparison operator. Only the
+     *  rows an index finds for an indexed equality are read, otherwise the blocks of rows
+     *  the zone maps rule out are skipped. */
+    public Operator scan(List<Condition> conditions) throws RuntimeException {
+        Predicate predicate = bind(conditions, columns);
+        if (predicate == null) {
+            return null;
+        }
+        int[] candidates = indexed(conditions);
+        return new ScanOperator(this, predicate, candidates, candidates == null ? zoneFilter(conditions) : null);
+    }
 
-        RCTable filtered = new RCTable(this);
+    /** Returns an operator that reads the rows of this table satisfying every condition in the
+     *  order of the ordered index over column, descending if descending is set, with rows of
+     *  equal keys in table order and the rows holding NOVALUE last. Returns null if the column
+     *  has no ordered index, if an index finds the rows for a condition since sorting those is
+     *  cheaper than reading every row, or if a condition doesn't have a comparison operator. */
+    public Operator scanInOrder(String column, boolean descending, List<Condition> conditions)
+            throws RuntimeException {
+        OrderedIndex index = orderedIndex(column);
+        Predicate predicate = bind(conditions, columns);
+        if (index == null || predicate == null || indexed(conditions) != null) {
+            return null;
+        }
+        return new ScanOperator(this, predicate, index.inOrder(descending), null);
+    }
 
-        // Iterate through the rows and add to the table if they meet the conditional expression.
-        for (Row row : this.rows()) {
-            if (isUnaryExpression) {
-                if (row.satisfiesConditional(col0Name, condOperator, literal)) {
-                    try {
-                        filtered.addRow(row);
-                    } catch (IOException e) {
-                        System.out.println("This should never be printed. We're adding rows from the same table.");
-                    }
-                }
-            } else {
-                if (row.satisfiesConditional(col0Name, condOperator, col1Name)) {
-                    try {
-                        filtered.addRow(row);
-                    } catch (IOException e) {
-                        System.out.println("This should never be printed. We're adding rows from the same table.");
-                    }
-                }
-            }
+    /** Appends every row of batch, which must have the same columns as this table. */
+    void append(RCTable batch) {
+        for (int i = 0; i < columns.size(); i++) {
+            columns.get(i).addAll(batch.columns.get(i));
         }
+    }
 
-        return filtered;
+    /** Returns a new table holding the rows at the first count positions of selection. */
+    RCTable select(int[] selection, int count) {
+        List<Column> selectedColumns = new ArrayList<>();
+        for (Column c : columns) {
+            selectedColumns.add(c.select(selection, count));
+        }
+        return new RCTable(selectedColumns);
     }
 
     /** Sets the name of this table to the given string. */
@@ -364,8 +445,19 @@ public class RCTable implements Table {
         this.name = name;
     }
 
+    /** Returns what the file of this table held when it was last loaded or stored, or null
+     *  if the table has no file. Clones and derived tables start without one. */
+    public PersistedState persisted() {
+        return persisted;
+    }
+
+    /** Records what the file of this table holds after a load or store. */
+    public void setPersisted(PersistedState persisted) {
+        this.persisted = persisted;
+    }
+
     /** Returns a list of columns stored in the table. */
-    private List<Column> columns() {
+    List<Column> columns() {
         return columns;
     }
 
@@ -374,14 +466,30 @@ public class RCTable implements Table {
         return columns.size();
     }
 
-    /** Returns a list of rows stored in the table. */
+    /** Returns a list of row views over the table. Rows are created lazily as they are accessed. */
     public List<Row> rows() {
-        return rows;
+        return new AbstractList<Row>() {
+            @Override
+            public Row get(int index) {
+                if (index < 0 || index >= numRows()) {
+                    throw new IndexOutOfBoundsException("Row " + index + " out of " + numRows());
+                }
+                return new Row(columns, index);
+            }
+
+            @Override
+            public int size() {
+                return numRows();
+            }
+        };
     }
 
     /** Returns the number of rows in this table. */
     public int numRows() {
-        return rows.size();
+        if (columns.isEmpty()) {
+            return 0;
+        }
+        return columns.get(0).length();
     }
 
     /** Returns the name of this table. */
@@ -392,27 +500,41 @@ public class RCTable implements Table {
     /** Returns a string representation of the table. */
     @Override
     public String toString() {
-        StringBuilder tbl = new StringBuilder();
+        StringWriter tbl = new StringWriter();
+        try {
+            write(tbl);
+        } catch (IOException e) {
+            // Writing to a string never fails.
+            throw new UncheckedIOException(e);
+        }
+        return tbl.toString();
+    }
 
+    /** Writes the string representation of the table to out a row at a time, so it never
+     *  has to be held in memory as a whole. */
+    public void write(Writer out) throws IOException {
         // Print the column names
         for (int i = 0; i < columns.size(); i++) {
             Column cc = columns.get(i);
-            tbl.append(cc.name());
-            tbl.append(" ");
-            tbl.append(cc.type());
+            out.write(cc.name());
+            out.write(" ");
+            out.write(cc.type());
 
             if (i != columns.size() - 1) {
-                tbl.append(",");
+                out.write(",");
             }
         }
-        tbl.append("\n");
 
+        writeRows(out);
+    }
+
+    /** Writes the string representation of every row to out, each on a new line. */
+    void writeRows(Writer out) throws IOException {
         // Print all the data points
-        for (Row row : rows) {
-            tbl.append(row.toString());
-            tbl.append("\n");
+        for (Row row : rows()) {
+            out.write("\n");
+            row.write(out);
         }
-        return tbl.deleteCharAt(tbl.length() - 1).toString();
     }
 
     /** Returns whether two Tables are equal. */
@@ -453,46 +575,27 @@ public class RCTable implements Table {
             copiedCols.add(c.clone());
         }
 
-        List<Row> copiedRows = new ArrayList<>();
-        for (Row r : this.rows) {
-            copiedRows.add(r.clone());
-        }
-
         cloned.columns = copiedCols;
-        cloned.rows = copiedRows;
 
         return cloned;
     }
 
-    /** Joins table1 with table2 using natural inner join
-     * and returns the resulting table. */
-    private static RCTable join(RCTable table1, RCTable table2) {
-        RCTable joined = new RCTable();
-        for (Row row1 : table1.rows()) {
-            for (Row row2 : table2.rows()) {
-                if (Row.mergeable(row1, row2)) {
-                    Row merged = Row.merge(row1, row2);
-                    try {
-                        joined.addRow(merged);
-                    } catch (IOException e) {
-                        System.out.println("This shouldn't ever happen if the mergeable and merge functions are correct.");
-                    }
-                }
-            }
-        }
-
-        return joined;
-    }
-
     /** Joins all tables given in the list with this table using natural inner join
-     * and returns the resulting table. */
+     * and returns the resulting table. The rows are joined by the same operators a
+     * select runs, and gathered into a table at the end. */
     public Table join(List<Table> tables) {
-        RCTable leftTable = this.clone();
+        if (tables.isEmpty()) {
+            RCTable cloned = this.clone();
+            cloned.setName("");
+            return cloned;
+        }
 
+        Operator joined = scan(Collections.emptyList());
         for (Table nextTable : tables) {
-            leftTable = RCTable.join(leftTable, (RCTable) nextTable);
+            joined = joined.join(nextTable);
         }
 
+        RCTable leftTable = joined.collect();
         leftTable.setName("");
         return leftTable;
     }
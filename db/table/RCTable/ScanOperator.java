@@ -0,0 +1,153 @@
+package db.table.RCTable;
+
+import db.expressions.Predicate;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * Reads the rows of a table that satisfy a predicate, a batch at a time. It reads
+ * either every row or only the candidate rows an index found, in the order the index
+ * gives them. A scan of every row passes over the blocks its zone filter rules out.
+ * A limited scan stops reading as soon as it has found enough rows.
+ *
+ * An unlimited scan over at least the parallel threshold of rows tests them a morsel at
+ * a time on the common pool, with a morsel per thread of the pool being read ahead of
+ * the batches taken, and passes the batches on in row order.
+ */
+class ScanOperator implements Operator {
+    private RCTable table;
+    private Predicate predicate;
+    private int[] candidates;
+    private ZoneMap.Filter zones;
+    private int remaining;
+    private Range range;
+
+    // The morsels being read in parallel, the position of the next one to start, the
+    // batches of the morsel taken last and the error it stopped at.
+    private Morsels.Window<Morsels.Batches> window;
+    private int started;
+    private Iterator<RCTable> ready = Collections.emptyIterator();
+    private RuntimeException failure;
+
+    /** Scans the rows at the positions in candidates, in that order, or every row if it is
+     *  null, skipping the blocks zones rules out unless it is null. */
+    ScanOperator(RCTable table, Predicate predicate, int[] candidates, ZoneMap.Filter zones) {
+        this(table, predicate, candidates, zones, Integer.MAX_VALUE);
+    }
+
+    /** Scans like the constructor above but produces at most limit rows. */
+    private ScanOperator(RCTable table, Predicate predicate, int[] candidates, ZoneMap.Filter zones, int limit) {
+        this.table = table;
+        this.predicate = predicate;
+        this.candidates = candidates;
+        this.zones = zones;
+        this.remaining = limit;
+    }
+
+    @Override
+    public Operator limit(int count) {
+        return new ScanOperator(table, predicate, candidates, zones, Math.min(remaining, count));
+    }
+
+    @Override
+    public RCTable schema() {
+        return new RCTable(table);
+    }
+
+    /** Returns the number of positions the scan reads. */
+    private int rows() {
+        return candidates == null ? table.numRows() : candidates.length;
+    }
+
+    @Override
+    public RCTable next() throws RuntimeException {
+        if (range == null && window == null) {
+            if (remaining == Integer.MAX_VALUE && Morsels.parallel(rows())) {
+                window = new Morsels.Window<>();
+            } else {
+                range = new Range(0, rows());
+            }
+        }
+        if (window != null) {
+            return nextInParallel();
+        }
+
+        // A limited scan gathers no more rows than it may still produce, so it never
+        // tests a row after the last one it needs.
+        if (remaining <= 0) {
+            return null;
+        }
+        RCTable batch = range.next(Math.min(BATCH_SIZE, remaining));
+        if (batch != null) {
+            remaining -= batch.numRows();
+        }
+        return batch;
+    }
+
+    /** Returns the next batch of the morsels read in parallel. */
+    private RCTable nextInParallel() throws RuntimeException {
+        int rows = rows();
+        while (!ready.hasNext()) {
+            if (failure != null) {
+                throw failure;
+            }
+            for (; started < rows && !window.isFull(); started += Morsels.MORSEL_ROWS) {
+                Range morsel = new Range(started, Math.min(rows, started + Morsels.MORSEL_ROWS));
+                window.submit(morsel::readAll);
+            }
+            if (window.isEmpty()) {
+                return null;
+            }
+            Morsels.Batches morsel = window.take();
+            ready = morsel.batches.iterator();
+            failure = morsel.error;
+        }
+        return ready.next();
+    }
+
+    /** Reads the positions in [position, end) of the scan, starting on a zone map block. */
+    private class Range {
+        private int position;
+        private int end;
+        private int[] selection = new int[BATCH_SIZE];
+
+        Range(int from, int end) {
+            this.position = from;
+            this.end = end;
+        }
+
+        /** Returns the next batch of at most size rows of the range that satisfy the
+         *  predicate, or null once the range has been read. */
+        RCTable next(int size) throws RuntimeException {
+            while (position < end) {
+                int count = 0;
+                for (; position < end && count < size; position++) {
+                    if (zones != null && position % ZoneMap.BLOCK_SIZE == 0 && zones.skips(position / ZoneMap.BLOCK_SIZE)) {
+                        position += ZoneMap.BLOCK_SIZE - 1;
+                        continue;
+                    }
+                    selection[count++] = candidates == null ? position : candidates[position];
+                }
+                count = predicate.filter(table.columns(), selection, count);
+                if (count > 0) {
+                    return table.select(selection, count);
+                }
+            }
+            return null;
+        }
+
+        /** Returns every batch of the range, up to the error reading one of them stopped at. */
+        Morsels.Batches readAll() {
+            Morsels.Batches batches = new Morsels.Batches();
+            try {
+                for (RCTable batch = next(BATCH_SIZE); batch != null; batch = next(BATCH_SIZE)) {
+                    batches.batches.add(batch);
+                }
+            } catch (RuntimeException e) {
+                batches.error = e;
+            }
+            return batches;
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package db.table.RCTable;
+
+import db.expressions.ColumnReference;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts the rows of its input by one column with an external merge sort. Rows are gathered
+ * into a run in memory until the run holds budget rows, then the run is sorted and written
+ * to a temporary file in the binary table format, one batch per segment. Once the input runs
+ * out the runs are merged a batch at a time. At most MERGE_WIDTH files are kept before they
+ * are merged into one, so the number of open files stays bounded. An input that fits into
+ * one run never touches the disk.
+ *
+ * Items are ordered the same way the comparison operators order them, with NaN after every
+ * other value, and the rows holding NOVALUE come last in either direction. The sort is
+ * stable, rows with equal items keep the order of the input. A limited sort that keeps
+ * no more rows than the budget becomes a TopOperator.
+ */
+class SortOperator implements Operator {
+    private static final int MERGE_WIDTH = 16;
+    private static final int RUN_BUFFER_SIZE = 1 << 16;
+    private static final String SPILL_ERROR = "ERROR: There was an error writing a sort run!";
+
+    private Operator input;
+    private int ordinal;
+    private boolean descending;
+    private int budget;
+    private Operator sorted;
+
+    /** Creates an operator sorting the rows of input by the column called column, keeping
+     *  at most budget rows in memory. */
+    SortOperator(Operator input, String column, boolean descending, int budget) throws RuntimeException {
+        this.input = input;
+        this.ordinal = ColumnReference.bind(input.schema().columns(), column).ordinal();
+        this.descending = descending;
+        this.budget = Math.max(budget, 1);
+    }
+
+    /** Compares the item at position i of a with the item at position j of b in sort order. */
+    static int compare(Column a, int i, Column b, int j, boolean descending) {
+        boolean aNOVALUE = a.isNOVALUE(i);
+        boolean bNOVALUE = b.isNOVALUE(j);
+        if (aNOVALUE || bNOVALUE) {
+            return Boolean.compare(aNOVALUE, bNOVALUE);
+        }
+        int c = a.compareItems(i, b, j);
+        return descending ? -c : c;
+    }
+
+    private int compare(Column a, int i, Column b, int j) {
+        return compare(a, i, b, j, descending);
+    }
+
+    @Override
+    public Operator limit(int count) {
+        if (sorted != null || count > budget) {
+            return Operator.super.limit(count);
+        }
+        return new TopOperator(input, ordinal, descending, count);
+    }
+
+    @Override
+    public RCTable schema() {
+        return input.schema();
+    }
+
+    @Override
+    public RCTable next() throws RuntimeException {
+        if (sorted == null) {
+            sorted = sortInput();
+        }
+        return sorted.next();
+    }
+
+    /** Reads every row of the input into runs and returns the operator merging them. */
+    private Operator sortInput() throws RuntimeException {
+        List<Path> files = new ArrayList<>();
+        try {
+            RCTable run = new RCTable(schema());
+            for (RCTable batch = input.next(); batch != null; batch = input.next()) {
+                run.append(batch);
+                if (run.numRows() >= budget) {
+                    files.add(spill(new SortedRun(run)));
+                    run = new RCTable(schema());
+                }
+                if (files.size() == MERGE_WIDTH) {
+                    Path merged = spill(new Merge(open(files)));
+                    files.clear();
+                    files.add(merged);
+                }
+            }
+
+            if (files.isEmpty()) {
+                return new SortedRun(run);
+            }
+            List<Operator> runs = open(files);
+            if (run.numRows() > 0) {
+                runs.add(new SortedRun(run));
+            }
+            return new Merge(runs);
+        } catch (IOException e) {
+            for (Path file : files) {
+                file.toFile().delete();
+            }
+            throw new RuntimeException(SPILL_ERROR);
+        }
+    }
+
+    /** Writes every batch of run to a new temporary file and returns its path. */
+    private Path spill(Operator run) throws IOException {
+        Path file = Files.createTempFile("sort", ".run");
+        file.toFile().deleteOnExit();
+        try (BinaryTableFile.SegmentWriter writer =
+                     new BinaryTableFile.SegmentWriter(file, schema().columns(), RUN_BUFFER_SIZE)) {
+            for (RCTable batch = run.next(); batch != null; batch = run.next()) {
+                writer.write(batch);
+            }
+        }
+        return file;
+    }
+
+    /** Returns an operator reading each of the run files, which are deleted once read. */
+    private List<Operator> open(List<Path> files) throws IOException {
+        List<Operator> runs = new ArrayList<>();
+        for (Path file : files) {
+            runs.add(new FileRun(file));
+        }
+        return runs;
+    }
+
+    /** Produces the rows of a table in sorted order. */
+    private class SortedRun implements Operator {
+        private RCTable run;
+        private int[] rows;
+        private int position;
+
+        SortedRun(RCTable run) {
+            this.run = run;
+            rows = new int[run.numRows()];
+            for (int i = 0; i < rows.length; i++) {
+                rows[i] = i;
+            }
+            sort(run.columns().get(ordinal), rows, new int[rows.length], 0, rows.length);
+        }
+
+        /** Sorts the rows in [from, to) by their items in column, with a merge sort that keeps
+         *  equal items in order. */
+        private void sort(Column column, int[] rows, int[] scratch, int from, int to) {
+            if (to - from <= 16) {
+                for (int i = from + 1; i < to; i++) {
+                    int row = rows[i];
+                    int j = i;
+                    for (; j > from && compare(column, rows[j - 1], column, row) > 0; j--) {
+                        rows[j] = rows[j - 1];
+                    }
+                    rows[j] = row;
+                }
+                return;
+            }
+
+            int middle = (from + to) >>> 1;
+            sort(column, rows, scratch, from, middle);
+            sort(column, rows, scratch, middle, to);
+            if (compare(column, rows[middle - 1], column, rows[middle]) <= 0) {
+                return;
+            }
+
+            System.arraycopy(rows, from, scratch, from, to - from);
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right == to || left < middle && compare(column, scratch[left], column, scratch[right]) <= 0) {
+                    rows[i] = scratch[left++];
+                } else {
+                    rows[i] = scratch[right++];
+                }
+            }
+        }
+
+        @Override
+        public RCTable schema() {
+            return new RCTable(run);
+        }
+
+        @Override
+        public RCTable next() {
+            if (position == rows.length) {
+                return null;
+            }
+            int count = Math.min(BATCH_SIZE, rows.length - position);
+            int[] selection = new int[count];
+            System.arraycopy(rows, position, selection, 0, count);
+            position += count;
+            return run.select(selection, count);
+        }
+    }
+
+    /** Reads the segments of a run file back as batches and deletes the file at its end. */
+    private class FileRun implements Operator {
+        private Path file;
+        private BinaryTableFile.SegmentReader reader;
+
+        FileRun(Path file) throws IOException {
+            this.file = file;
+            reader = new BinaryTableFile.SegmentReader(file, RUN_BUFFER_SIZE);
+        }
+
+        @Override
+        public RCTable schema() {
+            return SortOperator.this.schema();
+        }
+
+        @Override
+        public RCTable next() throws RuntimeException {
+            try {
+                RCTable batch = reader.next();
+                if (batch == null) {
+                    reader.close();
+                    Files.deleteIfExists(file);
+                }
+                return batch;
+            } catch (IOException e) {
+                throw new RuntimeException(SPILL_ERROR);
+            }
+        }
+    }
+
+    /** The next row of a run being merged. */
+    private static class Cursor {
+        private Operator run;
+        private int index;
+        private RCTable batch;
+        private int row;
+
+        Cursor(Operator run, int index) {
+            this.run = run;
+            this.index = index;
+        }
+
+        /** Moves to the next row of the run, returning false once the run is exhausted. */
+        boolean advance() throws RuntimeException {
+            if (batch != null && ++row < batch.numRows()) {
+                return true;
+            }
+            batch = run.next();
+            row = 0;
+            return batch != null;
+        }
+    }
+
+    /** Merges sorted runs into one sorted stream. Rows with equal items are taken from the
+     *  earlier run first, which keeps the merge stable. */
+    private class Merge implements Operator {
+        private PriorityQueue<Cursor> cursors;
+
+        Merge(List<Operator> runs) throws RuntimeException {
+            cursors = new PriorityQueue<>(Math.max(runs.size(), 1), (a, b) -> {
+                int c = compare(a.batch.columns().get(ordinal), a.row, b.batch.columns().get(ordinal), b.row);
+                return c != 0 ? c : Integer.compare(a.index, b.index);
+            });
+            for (int i = 0; i < runs.size(); i++) {
+                Cursor cursor = new Cursor(runs.get(i), i);
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+        }
+
+        @Override
+        public RCTable schema() {
+            return SortOperator.this.schema();
+        }
+
+        @Override
+        public RCTable next() throws RuntimeException {
+            if (cursors.isEmpty()) {
+                return null;
+            }
+            RCTable batch = new RCTable(schema());
+            List<Column> columns = batch.columns();
+            for (int count = 0; count < BATCH_SIZE && !cursors.isEmpty(); count++) {
+                Cursor cursor = cursors.poll();
+                List<Column> source = cursor.batch.columns();
+                for (int c = 0; c < columns.size(); c++) {
+                    columns.get(c).addItem(source.get(c), cursor.row);
+                }
+                if (cursor.advance()) {
+                    cursors.add(cursor);
+                }
+            }
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package db.table.RCTable;
+
+import db.literals.Literal;
+import db.literals.NOVALUE;
+import db.literals.NaN;
+import db.literals.StringLiteral;
+import db.operators.comparison.ComparisonOperator;
+
+import java.util.Arrays;
+
+/**
+ * A string column is dictionary encoded: each distinct string is kept once in a Dictionary
+ * and every item is an int code into it, or a negative code for NOVALUE and NaN. Columns
+ * selected from this one share its dictionary, so equality between their items, in filters,
+ * joins and grouping, only compares codes. Items of columns with different dictionaries are
+ * compared through a translation of one dictionary's codes into the other's.
+ *
+ * Only the column that created a dictionary adds strings to it. A column sharing another
+ * column's dictionary copies it before it adds a string of its own.
+ */
+public class StringColumn extends Column {
+    static final int NOVALUE_CODE = -1;
+    static final int NAN_CODE = -2;
+
+    private Dictionary dictionary;
+    private boolean shared;
+    private int[] codes;
+    private int size;
+
+    /** Create an empty string column called name. */
+    public StringColumn(String name) {
+        this(name, new Dictionary(), false, new int[NumericColumn.DEFAULT_CAPACITY], 0);
+    }
+
+    /** Creates a column called name holding the first size codes into dictionary, which
+     *  the column owns unless shared is set. */
+    StringColumn(String name, Dictionary dictionary, boolean shared, int[] codes, int size) {
+        super(name, StringLiteral.type);
+        this.dictionary = dictionary;
+        this.shared = shared;
+        this.codes = codes;
+        this.size = size;
+    }
+
+    /** Returns the dictionary of this column. */
+    Dictionary dictionary() {
+        return dictionary;
+    }
+
+    /** Returns the code array, which may be longer than the column. */
+    int[] codes() {
+        return codes;
+    }
+
+    /** Returns the code of the item at position index, which is negative for NOVALUE and NaN. */
+    public int code(int index) {
+        return codes[index];
+    }
+
+    /** Returns the code of value in the dictionary of this column, or a code no item has if
+     *  no item holds it. */
+    public int codeOf(String value) {
+        return dictionary.find(value);
+    }
+
+    /** Returns the code of value, adding it to the dictionary if it is new. */
+    int encode(String value) {
+        int code = dictionary.find(value);
+        if (code != Dictionary.ABSENT) {
+            return code;
+        }
+        if (shared) {
+            dictionary = dictionary.copy();
+            shared = false;
+        }
+        return dictionary.code(value);
+    }
+
+    /** Appends code to this column. */
+    void addCode(int code) {
+        if (size == codes.length) {
+            codes = Arrays.copyOf(codes, Math.max(size * 2, NumericColumn.DEFAULT_CAPACITY));
+        }
+        codes[size++] = code;
+    }
+
+    /** Appends value to this column. */
+    void addValue(String value) {
+        addCode(encode(value));
+    }
+
+    /** Shares the dictionary of source if this column is still empty, so items copied from
+     *  source keep their codes. */
+    private void adopt(StringColumn source) {
+        if (size == 0 && dictionary.size() == 0) {
+            dictionary = source.dictionary;
+            shared = true;
+        }
+    }
+
+    @Override
+    public Literal getItem(int index) {
+        int code = codes[index];
+        if (code == NOVALUE_CODE) {
+            return new NOVALUE(type());
+        } else if (code == NAN_CODE) {
+            return new NaN(type());
+        }
+        return new StringLiteral(dictionary.value(code));
+    }
+
+    @Override
+    public void addItem(Literal item) {
+        if (item instanceof NOVALUE) {
+            addCode(NOVALUE_CODE);
+        } else if (item instanceof NaN) {
+            addCode(NAN_CODE);
+        } else if (item instanceof StringLiteral) {
+            addCode(encode(((StringLiteral) item).getObject()));
+        } else {
+            throw new RuntimeException("ERROR: Type mismatch in string column!");
+        }
+    }
+
+    @Override
+    public void addItem(Column source, int index) {
+        if (!(source instanceof StringColumn)) {
+            super.addItem(source, index);
+            return;
+        }
+        StringColumn strings = (StringColumn) source;
+        adopt(strings);
+        int code = strings.codes[index];
+        if (code >= 0 && strings.dictionary != dictionary) {
+            code = encode(strings.dictionary.value(code));
+        }
+        addCode(code);
+    }
+
+    @Override
+    public void addAll(Column source) {
+        if (!(source instanceof StringColumn)) {
+            super.addAll(source);
+            return;
+        }
+        StringColumn strings = (StringColumn) source;
+        adopt(strings);
+        reserve(size + strings.size);
+        if (strings.dictionary == dictionary) {
+            System.arraycopy(strings.codes, 0, codes, size, strings.size);
+            size += strings.size;
+            return;
+        }
+
+        // Each string of the source is looked up once.
+        int[] translated = new int[strings.dictionary.size()];
+        Arrays.fill(translated, Dictionary.ABSENT);
+        for (int i = 0; i < strings.size; i++) {
+            int code = strings.codes[i];
+            if (code >= 0) {
+                if (translated[code] == Dictionary.ABSENT) {
+                    translated[code] = encode(strings.dictionary.value(code));
+                }
+                code = translated[code];
+            }
+            codes[size++] = code;
+        }
+    }
+
+    @Override
+    public Column select(int[] selection, int count) {
+        int[] selected = new int[Math.max(count, 1)];
+        for (int i = 0; i < count; i++) {
+            selected[i] = codes[selection[i]];
+        }
+        return new StringColumn(name(), dictionary, true, selected, count);
+    }
+
+    @Override
+    protected void reserve(int capacity) {
+        if (capacity > codes.length) {
+            codes = Arrays.copyOf(codes, Math.max(capacity, codes.length * 2));
+        }
+    }
+
+    @Override
+    public int length() {
+        return size;
+    }
+
+    @Override
+    public void clearData() {
+        dictionary = new Dictionary();
+        shared = false;
+        codes = new int[NumericColumn.DEFAULT_CAPACITY];
+        size = 0;
+    }
+
+    @Override
+    public boolean isNOVALUE(int index) {
+        return codes[index] == NOVALUE_CODE;
+    }
+
+    @Override
+    public boolean isNaN(int index) {
+        return codes[index] == NAN_CODE;
+    }
+
+    @Override
+    public int hashItem(int index) {
+        int code = codes[index];
+        if (code == NAN_CODE) {
+            return NaN.HASH;
+        }
+        return code == NOVALUE_CODE ? 0 : dictionary.hash(code);
+    }
+
+    /** Returns whether the items at index and at otherIndex of other, neither NOVALUE, are
+     *  equal, comparing their codes. */
+    private boolean codesEqual(int index, StringColumn other, int otherIndex) {
+        int code = codes[index];
+        int otherCode = other.codes[otherIndex];
+        if (code < 0 || otherCode < 0 || other.dictionary == dictionary) {
+            return code == otherCode;
+        }
+        return other.dictionary.translation(dictionary)[otherCode] == code;
+    }
+
+    @Override
+    public boolean itemEquals(int index, Column other, int otherIndex) {
+        if (!(other instanceof StringColumn)) {
+            return super.itemEquals(index, other, otherIndex);
+        }
+        if (isNOVALUE(index) || other.isNOVALUE(otherIndex)) {
+            return false;
+        }
+        return codesEqual(index, (StringColumn) other, otherIndex);
+    }
+
+    @Override
+    public boolean satisfies(int index, ComparisonOperator operator, Column other, int otherIndex) {
+        // Equality and inequality don't need the strings themselves.
+        if (other instanceof StringColumn && operator.holds(-1) == operator.holds(1)) {
+            if (isNOVALUE(index) || other.isNOVALUE(otherIndex)) {
+                return false;
+            }
+            return codesEqual(index, (StringColumn) other, otherIndex) ? operator.holds(0) : operator.holds(1);
+        }
+        return super.satisfies(index, operator, other, otherIndex);
+    }
+
+    @Override
+    public int compareItems(int index, Column other, int otherIndex) {
+        if (!(other instanceof StringColumn) || isNOVALUE(index) || other.isNOVALUE(otherIndex)) {
+            return super.compareItems(index, other, otherIndex);
+        }
+
+        StringColumn strings = (StringColumn) other;
+        int code = codes[index];
+        int otherCode = strings.codes[otherIndex];
+        if (code == NAN_CODE || otherCode == NAN_CODE) {
+            return Boolean.compare(code == NAN_CODE, otherCode == NAN_CODE);
+        }
+        if (code == otherCode && strings.dictionary == dictionary) {
+            return 0;
+        }
+        return dictionary.value(code).compareTo(strings.dictionary.value(otherCode));
+    }
+
+    @Override
+    public int compareItem(int index, Literal literal) {
+        int code = codes[index];
+        if (code < 0 || !(literal instanceof StringLiteral)) {
+            return super.compareItem(index, literal);
+        }
+        return dictionary.value(code).compareTo(((StringLiteral) literal).getObject());
+    }
+
+    @Override
+    public StringColumn clone() {
+        return new StringColumn(name(), dictionary, true, Arrays.copyOf(codes, codes.length), size);
+    }
+}
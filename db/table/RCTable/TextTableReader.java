@@ -0,0 +1,423 @@
+package db.table.RCTable;
+
+import db.literals.NOVALUE;
+import db.literals.NaN;
+import db.literals.StringLiteral;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Reads a .tbl text file by mapping it into memory one window at a time. Fields are
+ * parsed where they lie in the mapped bytes and appended straight to the typed columns
+ * of a table, so no line or field strings are created for numbers and the memory used
+ * besides the table itself doesn't grow with the size of the file. Large files are
+ * split into ranges of whole lines that are parsed in parallel.
+ */
+public class TextTableReader implements AutoCloseable {
+    static final int WINDOW_SIZE = 64 << 20;
+
+    // Files with fewer bytes of rows than this are read on the calling thread.
+    static final long PARALLEL_THRESHOLD = 8 << 20;
+    static final long MIN_CHUNK_SIZE = 1 << 20;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final byte[] NOVALUE_BYTES = "NOVALUE".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] NAN_BYTES = "NaN".getBytes(StandardCharsets.US_ASCII);
+
+    // A decimal with at most 15 digits and 22 fraction digits is exact as a double
+    // mantissa and power of ten, so a single division rounds it correctly.
+    private static final int MAX_FAST_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final String SIZE_MISMATCH = "Error! Cannot add row! Size mismatch!";
+    private static final String TYPE_MISMATCH = "Error! Cannot add row! Type mismatch!";
+
+    private FileChannel channel;
+    private boolean ownsChannel;
+    private Charset charset;
+    private int windowSize;
+
+    // The reader never reads at or past end, which is the end of the file or of its chunk.
+    private long end;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    // Bounds of the current line within the window, and the start of the next one.
+    private int lineStart;
+    private int lineEnd;
+    private int next;
+
+    /** Opens the file at path for reading. */
+    public TextTableReader(Path path) throws IOException {
+        this(path, WINDOW_SIZE);
+    }
+
+    /** Opens the file at path for reading, mapping at most windowSize bytes at once. */
+    TextTableReader(Path path, int windowSize) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.READ), true, 0, -1, windowSize);
+    }
+
+    /** Reads the lines of channel from position start up to end, or up to the end of the file
+     *  if end is negative. */
+    private TextTableReader(FileChannel channel, boolean ownsChannel, long start, long end,
+                            int windowSize) throws IOException {
+        this.channel = channel;
+        this.ownsChannel = ownsChannel;
+        this.windowSize = windowSize;
+        this.end = end < 0 ? channel.size() : end;
+        charset = Charset.defaultCharset();
+        map(start, windowSize);
+    }
+
+    /** Maps at least length bytes of the file from position start, or up to the end. */
+    private void map(long start, long length) throws IOException {
+        windowStart = start;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(length, end - start));
+        next = 0;
+    }
+
+    /** Moves to the next line of the file, returning false at its end. The whole line is
+     *  mapped, the window slides forward when a line crosses its end. */
+    private boolean nextLine() throws IOException {
+        int length = windowSize;
+        while (true) {
+            int limit = window.limit();
+            if (windowStart + next >= end) {
+                return false;
+            }
+
+            for (int i = next; i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    lineStart = next;
+                    lineEnd = i;
+                    next = i + 1;
+                    return true;
+                }
+            }
+
+            // The last line of the file doesn't need a line break.
+            if (windowStart + limit == end) {
+                lineStart = next;
+                lineEnd = limit;
+                next = limit;
+                return true;
+            }
+
+            // The line crosses the end of the window, so map again starting at the line. A
+            // line longer than a whole window needs a larger one.
+            if (next == 0) {
+                length = (int) Math.min(Integer.MAX_VALUE, (long) length * 2);
+            }
+            map(windowStart + next, length);
+        }
+    }
+
+    /** Returns whether the byte at index is a space, tab or carriage return. */
+    private boolean isBlank(int index) {
+        byte b = window.get(index);
+        return b == ' ' || b == '\t' || b == '\r';
+    }
+
+    /** Returns whether the bytes from start to end are expected. */
+    private boolean matches(int start, int end, byte[] expected) {
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (window.get(start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the bytes from start to end decoded as a string. */
+    private String decode(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        window.get(start, bytes);
+        return new String(bytes, charset);
+    }
+
+    /** Returns the first line of the file, which holds the column names and types. */
+    public String readHeader() throws IOException {
+        if (!nextLine()) {
+            return "";
+        }
+        int end = lineEnd;
+        while (end > lineStart && isBlank(end - 1)) {
+            end--;
+        }
+        return decode(lineStart, end);
+    }
+
+    /** Appends every remaining line of the file to table as a row. Throws if a line doesn't
+     *  match the columns of table, which may then hold some of the rows. */
+    public void readRows(RCTable table) throws IOException {
+        long start = windowStart + next;
+        int threads = ForkJoinPool.commonPool().getParallelism();
+        long chunks = Math.min((long) threads * CHUNKS_PER_THREAD, (end - start) / MIN_CHUNK_SIZE);
+        if (end - start < PARALLEL_THRESHOLD || threads < 2 || chunks < 2) {
+            readLines(table.columns());
+            return;
+        }
+
+        // Each chunk is parsed into its own segment of the columns, the segments are then
+        // appended to the table in file order.
+        List<RCTable> segments = readChunks(table, chunkBounds(start, (int) chunks));
+        for (int c = 0; c < table.numColumns(); c++) {
+            Column column = table.columns().get(c);
+            int length = column.length();
+            for (RCTable segment : segments) {
+                length += segment.numRows();
+            }
+            column.reserve(length);
+            for (RCTable segment : segments) {
+                column.addAll(segment.columns().get(c));
+            }
+        }
+    }
+
+    /** Appends every remaining line of this reader to columns. */
+    private void readLines(List<Column> columns) throws IOException {
+        while (nextLine()) {
+            readRow(columns);
+        }
+    }
+
+    /** Returns the position just after the first line break at or after position, or the end. */
+    private long nextLineStart(long position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        int read;
+        while (position < end && (read = channel.read(buffer, position)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return Math.min(end, position + i + 1);
+                }
+            }
+            position += read;
+            buffer.clear();
+        }
+        return end;
+    }
+
+    /** Splits the bytes from start to the end into at most count ranges of whole lines,
+     *  returning the position where each range starts followed by the end. */
+    private long[] chunkBounds(long start, int count) throws IOException {
+        long chunkSize = (end - start) / count;
+        long[] bounds = new long[count + 1];
+        int bound = 0;
+        bounds[bound++] = start;
+        for (int i = 1; i < count; i++) {
+            long boundary = nextLineStart(Math.max(start + i * chunkSize, bounds[bound - 1]));
+            if (boundary > bounds[bound - 1] && boundary < end) {
+                bounds[bound++] = boundary;
+            }
+        }
+        bounds[bound++] = end;
+        return Arrays.copyOf(bounds, bound);
+    }
+
+    /** Parses each range between consecutive bounds into a segment with the columns of table,
+     *  on the common fork-join pool. */
+    private List<RCTable> readChunks(RCTable table, long[] bounds) throws IOException {
+        List<RecursiveTask<RCTable>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < bounds.length; i++) {
+            long start = bounds[i];
+            long chunkEnd = bounds[i + 1];
+            tasks.add(new RecursiveTask<RCTable>() {
+                @Override
+                protected RCTable compute() {
+                    RCTable segment = new RCTable(table);
+                    try (TextTableReader chunk = new TextTableReader(channel, false, start, chunkEnd, windowSize)) {
+                        chunk.readLines(segment.columns());
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return segment;
+                }
+            });
+        }
+
+        try {
+            ForkJoinTask.invokeAll(tasks);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+
+        List<RCTable> segments = new ArrayList<>();
+        for (RecursiveTask<RCTable> task : tasks) {
+            segments.add(task.join());
+        }
+        return segments;
+    }
+
+    /** Parses the current line field by field into columns. */
+    private void readRow(List<Column> columns) throws IOException {
+        int position = lineStart;
+        for (int c = 0; c < columns.size(); c++) {
+            while (position < lineEnd && isBlank(position)) {
+                position++;
+            }
+
+            int start = position;
+            int end = position < lineEnd && window.get(position) == '\'' ? endOfString(position) : -1;
+            if (end == -1) {
+                while (position < lineEnd && window.get(position) != ',') {
+                    position++;
+                }
+                end = position;
+            }
+            position = end;
+            while (end > start && isBlank(end - 1)) {
+                end--;
+            }
+
+            while (position < lineEnd && isBlank(position)) {
+                position++;
+            }
+            if (c < columns.size() - 1) {
+                if (position == lineEnd || window.get(position) != ',') {
+                    throw new IOException(SIZE_MISMATCH);
+                }
+                position++;
+            } else if (position != lineEnd) {
+                throw new IOException(SIZE_MISMATCH);
+            }
+
+            readField(columns.get(c), start, end);
+        }
+    }
+
+    /** Returns the position after the quote that closes the string starting at start, which is
+     *  the first quote followed by a comma or the end of the line. Returns -1 if there is none. */
+    private int endOfString(int start) {
+        for (int i = start + 1; i < lineEnd; i++) {
+            if (window.get(i) != '\'') {
+                continue;
+            }
+            int after = i + 1;
+            while (after < lineEnd && isBlank(after)) {
+                after++;
+            }
+            if (after == lineEnd || window.get(after) == ',') {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /** Parses the field from start to end and appends it to column. */
+    private void readField(Column column, int start, int end) throws IOException {
+        if (matches(start, end, NOVALUE_BYTES)) {
+            column.addItem(new NOVALUE(column.type()));
+        } else if (matches(start, end, NAN_BYTES)) {
+            column.addItem(new NaN(column.type()));
+        } else if (column instanceof IntColumn) {
+            ((IntColumn) column).addInt(parseInt(start, end));
+        } else if (column instanceof FloatColumn) {
+            ((FloatColumn) column).addDouble(parseDouble(start, end));
+        } else if (column.type().equals(StringLiteral.type) && end - start >= 2
+                && window.get(start) == '\'' && window.get(end - 1) == '\'') {
+            // String must be listed in single quotes
+            column.addItem(new StringLiteral(decode(start + 1, end - 1)));
+        } else {
+            throw new IOException(TYPE_MISMATCH);
+        }
+    }
+
+    /** Parses the bytes from start to end as an int. */
+    private int parseInt(int start, int end) throws IOException {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+            negative = window.get(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            throw new IOException(TYPE_MISMATCH);
+        }
+
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = window.get(i) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new IOException(TYPE_MISMATCH);
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new IOException(TYPE_MISMATCH);
+            }
+        }
+
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException(TYPE_MISMATCH);
+        }
+        return (int) value;
+    }
+
+    /** Parses the bytes from start to end as a double. Plain decimals are converted in place,
+     *  anything else is left to Double.parseDouble. */
+    private double parseDouble(int start, int end) throws IOException {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (window.get(i) == '-' || window.get(i) == '+')) {
+            negative = window.get(i) == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; i < end; i++) {
+            byte b = window.get(i);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                break;
+            }
+        }
+
+        if (i == end && digits > 0 && digits <= MAX_FAST_DIGITS && fractionDigits < POWERS_OF_TEN.length) {
+            double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+            return negative ? -value : value;
+        }
+
+        try {
+            return Double.parseDouble(decode(start, end));
+        } catch (NumberFormatException e) {
+            throw new IOException(TYPE_MISMATCH);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
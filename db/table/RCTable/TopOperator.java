@@ -0,0 +1,139 @@
+package db.table.RCTable;
+
+import java.util.Arrays;
+
+/**
+ * Produces the first rows of its input in the order of one column, like a SortOperator
+ * followed by a limit, without sorting every row. The best rows seen so far are kept in a
+ * table with a heap over their positions whose root is the worst of them, so each row of
+ * the input is compared with the root once and only kept if it beats it. Rows that drop
+ * out of the heap stay in the table until it holds twice the limit, then the table is
+ * compacted. Rows with equal items are ordered by position, which is their input order,
+ * so the result is the same as that of the stable sort.
+ */
+class TopOperator implements Operator {
+    private Operator input;
+    private int ordinal;
+    private boolean descending;
+    private int limit;
+    private RCTable kept;
+    private int[] heap;
+    private int size;
+    private int[] rows;
+    private int position;
+
+    /** Keeps the first limit rows of input by the column at ordinal. */
+    TopOperator(Operator input, int ordinal, boolean descending, int limit) {
+        this.input = input;
+        this.ordinal = ordinal;
+        this.descending = descending;
+        this.limit = limit;
+    }
+
+    @Override
+    public RCTable schema() {
+        return input.schema();
+    }
+
+    /** Compares the kept rows at positions a and b in sort order. */
+    private int compare(int a, int b) {
+        Column column = kept.columns().get(ordinal);
+        int c = SortOperator.compare(column, a, column, b, descending);
+        return c != 0 ? c : Integer.compare(a, b);
+    }
+
+    @Override
+    public RCTable next() throws RuntimeException {
+        if (rows == null) {
+            keepTop();
+        }
+        if (position == rows.length) {
+            return null;
+        }
+        int count = Math.min(BATCH_SIZE, rows.length - position);
+        int[] selection = Arrays.copyOfRange(rows, position, position + count);
+        position += count;
+        return kept.select(selection, count);
+    }
+
+    /** Reads every row of the input, keeps the best ones and sorts them. */
+    private void keepTop() throws RuntimeException {
+        kept = new RCTable(schema());
+        heap = new int[limit];
+        for (RCTable batch = limit > 0 ? input.next() : null; batch != null; batch = input.next()) {
+            Column column = batch.columns().get(ordinal);
+            for (int row = 0; row < batch.numRows(); row++) {
+                if (size < limit) {
+                    heap[size] = keep(batch, row);
+                    siftUp(size++);
+                } else if (SortOperator.compare(column, row, kept.columns().get(ordinal), heap[0], descending) < 0) {
+                    heap[0] = keep(batch, row);
+                    siftDown(0);
+                }
+            }
+            if (kept.numRows() >= 2 * limit + BATCH_SIZE) {
+                compact();
+            }
+        }
+
+        rows = Arrays.copyOf(heap, size);
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = rows[i];
+        }
+        Arrays.sort(order, this::compare);
+        for (int i = 0; i < size; i++) {
+            rows[i] = order[i];
+        }
+    }
+
+    /** Appends the row at position row of batch to the kept rows and returns its position. */
+    private int keep(RCTable batch, int row) {
+        for (int c = 0; c < kept.numColumns(); c++) {
+            kept.columns().get(c).addItem(batch.columns().get(c), row);
+        }
+        return kept.numRows() - 1;
+    }
+
+    /** Drops the kept rows that are no longer in the heap, keeping the others in order. */
+    private void compact() {
+        int[] live = Arrays.copyOf(heap, size);
+        Arrays.sort(live);
+        kept = kept.select(live, size);
+        for (int i = 0; i < size; i++) {
+            heap[i] = i;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0 && compare(heap[(i - 1) / 2], heap[i]) < 0) {
+            swap(i, (i - 1) / 2);
+            i = (i - 1) / 2;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int worst = i;
+            for (int child = 2 * i + 1; child <= 2 * i + 2 && child < size; child++) {
+                if (compare(heap[child], heap[worst]) > 0) {
+                    worst = child;
+                }
+            }
+            if (worst == i) {
+                return;
+            }
+            swap(i, worst);
+            i = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int row = heap[i];
+        heap[i] = heap[j];
+        heap[j] = row;
+    }
+}
@@ -0,0 +1,215 @@
+package db.table.RCTable;
+
+import db.literals.Literal;
+import db.literals.NOVALUE;
+import db.operators.comparison.ComparisonOperator;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The smallest and largest item and the number of NOVALUE items of each block of
+ * BLOCK_SIZE rows of a column. The smallest and largest items are kept as the positions
+ * of the rows holding them, ordered the way compareItems orders them with NaN last, so a
+ * zone map works the same for every column type. A scan skips the blocks where a
+ * comparison with a literal can't hold for any item between the two.
+ *
+ * The map is extended over the rows added to its column by update, and a block holding
+ * rows the map hasn't seen yet is never skipped.
+ */
+class ZoneMap {
+    static final int BLOCK_SIZE = 1024;
+    private static final int NONE = -1;
+
+    private Column column;
+    private int[] minRows = new int[16];
+    private int[] maxRows = new int[16];
+    private int[] novalues = new int[16];
+    private int rows;
+
+    /** Creates an empty zone map over column, which update fills. */
+    ZoneMap(Column column) {
+        this.column = column;
+    }
+
+    /** Returns whether a zone map can be kept over column. */
+    static boolean supports(Column column) {
+        return column instanceof NumericColumn || column instanceof StringColumn;
+    }
+
+    /** Extends the map over the rows added to the column since it was last updated. */
+    void update() {
+        if (column.length() < rows) {
+            // The column was cleared.
+            rows = 0;
+        }
+        for (; rows < column.length(); rows++) {
+            int block = rows / BLOCK_SIZE;
+            if (rows % BLOCK_SIZE == 0) {
+                open(block);
+            }
+            if (column.isNOVALUE(rows)) {
+                novalues[block]++;
+            } else {
+                extend(block, rows, rows);
+            }
+        }
+    }
+
+    /** Starts an empty block. */
+    private void open(int block) {
+        if (block == minRows.length) {
+            minRows = Arrays.copyOf(minRows, block * 2);
+            maxRows = Arrays.copyOf(maxRows, block * 2);
+            novalues = Arrays.copyOf(novalues, block * 2);
+        }
+        minRows[block] = NONE;
+        maxRows[block] = NONE;
+        novalues[block] = 0;
+    }
+
+    /** Widens block to hold the items at minRow and maxRow. */
+    private void extend(int block, int minRow, int maxRow) {
+        if (minRows[block] == NONE || column.compareItems(minRow, column, minRows[block]) < 0) {
+            minRows[block] = minRow;
+        }
+        if (maxRows[block] == NONE || column.compareItems(maxRow, column, maxRows[block]) > 0) {
+            maxRows[block] = maxRow;
+        }
+    }
+
+    /** Returns whether an item of block may satisfy operator against literal, throwing the
+     *  error comparing an item of the block with literal would. */
+    boolean mayMatch(int block, ComparisonOperator operator, Literal literal) throws RuntimeException {
+        int start = block * BLOCK_SIZE;
+        int end = Math.min(start + BLOCK_SIZE, column.length());
+        if (rows < end || column.length() < rows) {
+            return true;
+        }
+        if (literal instanceof NOVALUE || novalues[block] == end - start) {
+            return false;
+        }
+
+        // Every item lies between the smallest and the largest one, so it compares with the
+        // literal somewhere between the two of them.
+        int low = Integer.signum(column.compareItem(minRows[block], literal));
+        int high = Integer.signum(column.compareItem(maxRows[block], literal));
+        for (int sign = low; sign <= high; sign++) {
+            if (operator.holds(sign)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the zone map of the rows of column in [from, to), as they are stored in a file
+     *  where they start at position start. The blocks are those of the stored table, so the
+     *  first and last ones may be cut short, and each is three ints: the positions of its
+     *  smallest and largest items from from, or NONE if it only holds NOVALUE, and its number
+     *  of NOVALUE items. */
+    static int[] pieces(Column column, int from, int to, int start) {
+        if (from == to) {
+            return new int[0];
+        }
+        int first = start / BLOCK_SIZE;
+        int last = (start + to - from - 1) / BLOCK_SIZE;
+        int[] pieces = new int[3 * (last - first + 1)];
+        for (int p = 0; p < pieces.length; p += 3) {
+            pieces[p] = NONE;
+            pieces[p + 1] = NONE;
+        }
+
+        for (int row = from; row < to; row++) {
+            int p = 3 * ((start + row - from) / BLOCK_SIZE - first);
+            if (column.isNOVALUE(row)) {
+                pieces[p + 2]++;
+                continue;
+            }
+            if (pieces[p] == NONE || column.compareItems(row, column, pieces[p] + from) < 0) {
+                pieces[p] = row - from;
+            }
+            if (pieces[p + 1] == NONE || column.compareItems(row, column, pieces[p + 1] + from) > 0) {
+                pieces[p + 1] = row - from;
+            }
+        }
+        return pieces;
+    }
+
+    /** Returns whether pieces is a valid zone map, as made by pieces, of rows rows stored
+     *  from position start on. */
+    static boolean valid(int[] pieces, int start, int rows) {
+        int blocks = rows == 0 ? 0 : (start + rows - 1) / BLOCK_SIZE - start / BLOCK_SIZE + 1;
+        if (pieces.length != 3 * blocks) {
+            return false;
+        }
+        for (int p = 0; p < pieces.length; p += 3) {
+            boolean empty = pieces[p] == NONE && pieces[p + 1] == NONE;
+            boolean inside = pieces[p] >= 0 && pieces[p] < rows && pieces[p + 1] >= 0 && pieces[p + 1] < rows;
+            if (!empty && !inside || pieces[p + 2] < 0 || pieces[p + 2] > BLOCK_SIZE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Extends the map over the rows in [start, end) of the column from pieces, made by
+     *  pieces for those rows. The map is updated from the items instead if it doesn't end
+     *  at start. */
+    void restore(int[] pieces, int start, int end) {
+        if (rows != start) {
+            update();
+            return;
+        }
+        for (int p = 0; p < pieces.length; p += 3) {
+            int block = rows / BLOCK_SIZE;
+            if (rows % BLOCK_SIZE == 0) {
+                open(block);
+            }
+            novalues[block] += pieces[p + 2];
+            if (pieces[p] != NONE) {
+                extend(block, pieces[p] + start, pieces[p + 1] + start);
+            }
+            rows = Math.min(end, (block + 1) * BLOCK_SIZE);
+        }
+    }
+
+    /**
+     * The comparisons of columns with literals every row of a table has to satisfy, each
+     * checked against the zone map of its column. A block is skipped once a comparison
+     * can't hold for any of its rows. The comparisons are checked in the order the rows
+     * test them, and checking stops at the first one that fails, so the rows of a block
+     * are still tested whenever testing them would report an error.
+     */
+    static class Filter {
+        private List<ZoneMap> zones = new ArrayList<>();
+        private List<ComparisonOperator> operators = new ArrayList<>();
+        private List<Literal> literals = new ArrayList<>();
+
+        /** Adds the comparison of the column of zone with literal. */
+        void add(ZoneMap zone, ComparisonOperator operator, Literal literal) {
+            zones.add(zone);
+            operators.add(operator);
+            literals.add(literal);
+        }
+
+        /** Returns whether there is no comparison to check. */
+        boolean isEmpty() {
+            return zones.isEmpty();
+        }
+
+        /** Returns whether no row of block can satisfy every comparison. */
+        boolean skips(int block) {
+            for (int i = 0; i < zones.size(); i++) {
+                try {
+                    if (!zones.get(i).mayMatch(block, operators.get(i), literals.get(i))) {
+                        return true;
+                    }
+                } catch (RuntimeException e) {
+                    return false;
+                }
+            }
+            return false;
+        }
+    }
+}
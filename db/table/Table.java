@@ -1,6 +1,10 @@
 package db.table;
 
+import db.expressions.ColumnExpression;
+import db.expressions.Condition;
+
 import java.io.IOException;
+import java.io.Writer;
 import java.util.List;
 
 /**
@@ -13,9 +17,12 @@ public interface Table {
     /** Returns the number of columns in this table. */
     int numColumns();
 
-    /** Returns a list of rows stored in the table. */
+    /** Returns a list of row views over the table, created lazily as they are accessed. */
     List rows();
 
+    /** Returns whether or not this table has the given column. */
+    boolean hasColumn(String name);
+
     /** Returns the number of rows in this table. */
     int numRows();
 
@@ -28,10 +35,22 @@ public interface Table {
     /** Returns a new filtered table of all rows in this table that don't match the condition. */
     Table filterTableByCondition(String condition) throws RuntimeException;
 
+    /** Returns a new filtered table of the rows in this table that satisfy every condition. */
+    Table filterTableByConditions(List<String> conditions) throws RuntimeException;
+
+    /** Returns a new filtered table of the rows in this table that satisfy every parsed condition. */
+    Table filter(List<Condition> conditions) throws RuntimeException;
+
+    /** Returns a new table holding the result of each parsed column expression. */
+    Table project(List<ColumnExpression> columnExpressions) throws RuntimeException;
+
     /** Returns a string representation of the table. */
     @Override
     String toString();
 
+    /** Writes the string representation of the table to out a row at a time. */
+    void write(Writer out) throws IOException;
+
     /** Returns whether two Tables are equal. */
     @Override
     boolean equals(Object obj);
@@ -0,0 +1,108 @@
+package db;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * Checks that a database logged to a write-ahead log comes back after a restart with the
+ * same tables it had, and that stores don't make recovery add rows twice. Run from the
+ * directory the tables are loaded from.
+ */
+public class RecoveryTest {
+    private static final Path TABLE = Paths.get("recovery.tbl");
+    private static final Path LOG = Paths.get("recovery.wal");
+
+    public static void main(String[] args) throws IOException {
+        try {
+            storeCheckpointsTheLog();
+            storeWithUnstoredTables();
+            tornRecordIsDropped();
+        } finally {
+            Files.deleteIfExists(TABLE);
+            Files.deleteIfExists(LOG);
+        }
+        System.out.println("RecoveryTest passed");
+    }
+
+    /** Loads, inserts and stores a table, the case that used to come back with the row twice. */
+    private static void storeCheckpointsTheLog() throws IOException {
+        reset();
+        Database db = new Database(LOG);
+        run(db, "load recovery");
+        run(db, "insert into recovery values 'Z','C','S',2000");
+        run(db, "store recovery");
+        db.close();
+
+        // Everything is in the file, so the log is down to loading it.
+        check(new WriteAheadLog(LOG).replay().size() == 1, "log was not checkpointed");
+        assertRecovered("'A','B','N',1999", "'Z','C','S',2000");
+    }
+
+    /** Stores one table while another only exists in the log, so the log can't be checkpointed. */
+    private static void storeWithUnstoredTables() throws IOException {
+        reset();
+        Database db = new Database(LOG);
+        run(db, "load recovery");
+        run(db, "create table other (x int)");
+        run(db, "insert into recovery values 'Z','C','S',2000");
+        run(db, "store recovery");
+        run(db, "insert into recovery values 'Y','D','T',2001");
+        run(db, "insert into other values 7");
+        db.close();
+
+        assertRecovered("'A','B','N',1999", "'Z','C','S',2000", "'Y','D','T',2001");
+        Database recovered = new Database(LOG);
+        check(recovered.transact("print other").equals("x int\n7"), "other was not recovered");
+        recovered.close();
+    }
+
+    /** Cuts the last record short, as a crash in the middle of writing it would. */
+    private static void tornRecordIsDropped() throws IOException {
+        reset();
+        Database db = new Database(LOG);
+        run(db, "create table other (x int)");
+        run(db, "insert into other values 1");
+        run(db, "insert into other values 2");
+        db.close();
+
+        byte[] log = Files.readAllBytes(LOG);
+        Files.write(LOG, Arrays.copyOf(log, log.length - 3));
+        Database recovered = new Database(LOG);
+        check(recovered.transact("print other").equals("x int\n1"), "torn record was replayed");
+        run(recovered, "insert into other values 3");
+        recovered.close();
+
+        recovered = new Database(LOG);
+        check(recovered.transact("print other").equals("x int\n1\n3"), "log did not continue after the torn record");
+        recovered.close();
+    }
+
+    /** Writes a fresh table file and removes the log. */
+    private static void reset() throws IOException {
+        Files.write(TABLE, Arrays.asList("a string,b string,c string,y int", "'A','B','N',1999"));
+        Files.deleteIfExists(LOG);
+    }
+
+    /** Restarts from the log and checks the table holds exactly rows. */
+    private static void assertRecovered(String... rows) throws IOException {
+        Database db = new Database(LOG);
+        String expected = "a string,b string,c string,y int\n" + String.join("\n", rows);
+        String printed = db.transact("print recovery");
+        db.close();
+        check(printed.equals(expected), "recovered\n" + printed + "\ninstead of\n" + expected);
+    }
+
+    private static void run(Database db, String query) {
+        String result = db.transact(query);
+        check(result.isEmpty(), query + " failed: " + result);
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}
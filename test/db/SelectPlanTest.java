@@ -0,0 +1,123 @@
+package db;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+/**
+ * Checks selects with an order by and a limit, as SelectPlan builds them, against sorting
+ * the rows of the table in the test: NaN after every number, NOVALUE last in either
+ * direction and equal keys in table order. The same selects are run with a sort that
+ * spills to disk and with the rows read through an ordered index.
+ */
+public class SelectPlanTest {
+    private static final int ROWS = 3000;
+
+    /** A row of the table t (k int, v int). A null key is NOVALUE. */
+    private static class Row {
+        private final Double k;
+        private final int v;
+
+        Row(Double k, int v) {
+            this.k = k;
+            this.v = v;
+        }
+
+        String key() {
+            if (k == null) {
+                return "NOVALUE";
+            }
+            return k.isNaN() ? "NaN" : String.valueOf(k.intValue());
+        }
+
+        @Override
+        public String toString() {
+            return key() + "," + v;
+        }
+    }
+
+    public static void main(String[] args) {
+        Database db = new Database();
+        List<Row> rows = fill(db);
+
+        checkSelects(db, rows);
+
+        // Sorts that don't fit in memory are merged from runs written to disk.
+        db.setSortBudget(100);
+        checkSelects(db, rows);
+        db.setSortBudget(1 << 20);
+
+        // Sorting by a column with an ordered index reads the rows in index order.
+        run(db, "create ordered index tk on t (k)");
+        checkSelects(db, rows);
+        System.out.println("SelectPlanTest passed");
+    }
+
+    private static void checkSelects(Database db, List<Row> rows) {
+        check(db, "select k, v from t order by k", sorted(rows, false), -1);
+        check(db, "select k, v from t order by k limit 10", sorted(rows, false), 10);
+        check(db, "select k, v from t order by k desc limit 25", sorted(rows, true), 25);
+        check(db, "select k, v from t order by k desc", sorted(rows, true), -1);
+        check(db, "select k, v from t limit 7", rows, 7);
+        check(db, "select k, v from t order by k limit " + (ROWS + 10), sorted(rows, false), -1);
+
+        List<Row> filtered = rows.stream().filter(row -> row.v > 1000).collect(Collectors.toList());
+        check(db, "select k, v from t where v > 1000 order by k desc limit 40", sorted(filtered, true), 40);
+
+        // The sort key isn't selected, so the rows are sorted before the projection.
+        String expected = "v int" + sorted(rows, false).stream().limit(15)
+                .map(row -> "\n" + row.v).collect(Collectors.joining());
+        String selected = db.transact("select v from t order by k limit 15");
+        assertEquals(expected, selected, "select v from t order by k limit 15");
+    }
+
+    /** Creates the table t with random keys, some of them NaN or NOVALUE, and returns its rows. */
+    private static List<Row> fill(Database db) {
+        run(db, "create table t (k int, v int)");
+        Random random = new Random(42);
+        List<Row> rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            int draw = random.nextInt(100);
+            Double k = draw < 5 ? null : draw < 10 ? Double.NaN : (double) random.nextInt(200) - 100;
+            Row row = new Row(k, i);
+            rows.add(row);
+            run(db, "insert into t values " + row);
+        }
+        return rows;
+    }
+
+    /** Returns rows sorted by their key, NaN after every number and NOVALUE last, keeping
+     *  the order of equal keys. */
+    private static List<Row> sorted(List<Row> rows, boolean descending) {
+        Comparator<Double> values = Comparator.naturalOrder();
+        if (descending) {
+            values = values.reversed();
+        }
+        Comparator<Row> order = Comparator.comparing(row -> row.k, Comparator.nullsLast(values));
+        List<Row> sorted = new ArrayList<>(rows);
+        sorted.sort(order);
+        return sorted;
+    }
+
+    /** Checks that query gives the first limit of rows, or every row if limit is negative. */
+    private static void check(Database db, String query, List<Row> rows, int limit) {
+        String expected = "k int,v int" + rows.stream().limit(limit < 0 ? rows.size() : limit)
+                .map(row -> "\n" + row).collect(Collectors.joining());
+        assertEquals(expected, db.transact(query), query);
+    }
+
+    private static void run(Database db, String query) {
+        String result = db.transact(query);
+        if (!result.isEmpty()) {
+            throw new AssertionError(query + " failed: " + result);
+        }
+    }
+
+    private static void assertEquals(String expected, String actual, String query) {
+        if (!expected.equals(actual)) {
+            throw new AssertionError(query + " gave\n" + actual + "\ninstead of\n" + expected);
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package db.table.RCTable;
+
+import db.table.Table;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Checks RCTable.join, which runs through JoinOperator, against a nested loop over the
+ * rows of the tables: common columns first, rows ordered by left row then right row, and
+ * NOVALUE keys never matching.
+ */
+public class JoinOperatorTest {
+    public static void main(String[] args) throws IOException {
+        joinsOnCommonColumn();
+        joinsThroughIndex();
+        joinsWithoutCommonColumns();
+        spreadsManyMatchesOverBatches();
+        joinsThreeTables();
+        System.out.println("JoinOperatorTest passed");
+    }
+
+    private static void joinsOnCommonColumn() throws IOException {
+        RCTable left = table("k int,a string", "1,'x'", "2,'y'", "NOVALUE,'z'", "1,'w'", "3,'v'");
+        RCTable right = table("b int,k int", "10,1", "20,3", "30,NOVALUE", "40,1", "50,4");
+        checkJoin(left, right);
+    }
+
+    private static void joinsThroughIndex() throws IOException {
+        RCTable left = table("s string,a int", "'p',1", "'q',2", "NOVALUE,3", "'p',4");
+        RCTable right = table("s string,b int", "'p',5", "'r',6", "'p',7", "NOVALUE,8");
+        String unindexed = left.join(Collections.singletonList(right)).toString();
+        right.createIndex("ix", "s", false);
+        check(left.join(Collections.singletonList(right)).toString().equals(unindexed), "indexed join differs");
+        checkJoin(left, right);
+    }
+
+    private static void joinsWithoutCommonColumns() throws IOException {
+        RCTable left = table("a int", "1", "2", "3");
+        RCTable right = table("b string", "'x'", "'y'");
+        checkJoin(left, right);
+    }
+
+    /** A single left row matching more rows than fit in one batch. */
+    private static void spreadsManyMatchesOverBatches() throws IOException {
+        RCTable left = table("k int,a int", "7,1", "8,2", "7,3");
+        RCTable right = table("k int,b int");
+        for (int i = 0; i < 3 * Operator.BATCH_SIZE + 5; i++) {
+            right.addRow(Arrays.asList(i % 2 == 0 ? "7" : "8", String.valueOf(i)));
+        }
+        checkJoin(left, right);
+    }
+
+    private static void joinsThreeTables() throws IOException {
+        RCTable a = table("k int,x int", "1,1", "2,2", "3,3");
+        RCTable b = table("k int,m int", "1,5", "3,6", "3,7");
+        RCTable c = table("m int,y int", "6,100", "7,200", "5,300", "6,400");
+        String expected = nestedLoop(nestedLoop(a, b), c).toString();
+        Table joined = a.join(Arrays.asList(b, c));
+        check(joined.toString().equals(expected), "three-way join gave\n" + joined + "\ninstead of\n" + expected);
+    }
+
+    /** Checks that joining left with right gives the same table as a nested loop. */
+    private static void checkJoin(RCTable left, RCTable right) {
+        String expected = nestedLoop(left, right).toString();
+        String joined = left.join(Collections.singletonList(right)).toString();
+        check(joined.equals(expected), "join gave\n" + joined + "\ninstead of\n" + expected);
+    }
+
+    /** Returns the natural join of left and right, found by comparing every pair of rows. */
+    private static RCTable nestedLoop(RCTable left, RCTable right) {
+        List<Column> l = left.columns();
+        List<Column> r = right.columns();
+        List<int[]> keys = new ArrayList<>();
+        for (int i = 0; i < l.size(); i++) {
+            for (int j = 0; j < r.size(); j++) {
+                if (l.get(i).name().equals(r.get(j).name())) {
+                    keys.add(new int[]{i, j});
+                }
+            }
+        }
+
+        List<Column> sources = new ArrayList<>();
+        List<Boolean> fromLeft = new ArrayList<>();
+        List<Integer> ordinals = new ArrayList<>();
+        for (int[] key : keys) {
+            sources.add(l.get(key[0]));
+            fromLeft.add(true);
+            ordinals.add(key[0]);
+        }
+        for (int i = 0; i < l.size(); i++) {
+            if (!containsKey(keys, 0, i)) {
+                sources.add(l.get(i));
+                fromLeft.add(true);
+                ordinals.add(i);
+            }
+        }
+        for (int j = 0; j < r.size(); j++) {
+            if (!containsKey(keys, 1, j)) {
+                sources.add(r.get(j));
+                fromLeft.add(false);
+                ordinals.add(j);
+            }
+        }
+
+        List<Column> columns = new ArrayList<>();
+        for (Column source : sources) {
+            columns.add(Column.make(source.name(), source.type()));
+        }
+        for (int x = 0; x < left.numRows(); x++) {
+            for (int y = 0; y < right.numRows(); y++) {
+                if (!matches(l, x, r, y, keys)) {
+                    continue;
+                }
+                for (int c = 0; c < columns.size(); c++) {
+                    Column source = fromLeft.get(c) ? l.get(ordinals.get(c)) : r.get(ordinals.get(c));
+                    columns.get(c).addItem(source, fromLeft.get(c) ? x : y);
+                }
+            }
+        }
+        return new RCTable(columns);
+    }
+
+    private static boolean containsKey(List<int[]> keys, int side, int ordinal) {
+        for (int[] key : keys) {
+            if (key[side] == ordinal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(List<Column> l, int x, List<Column> r, int y, List<int[]> keys) {
+        for (int[] key : keys) {
+            if (!l.get(key[0]).getItem(x).toString().equals(r.get(key[1]).getItem(y).toString())
+                    || l.get(key[0]).isNOVALUE(x)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns a table with the given header, in the format of a .tbl file, and rows. */
+    private static RCTable table(String header, String... rows) throws IOException {
+        List<String> names = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        for (String column : header.split(",")) {
+            String[] nameType = column.split(" ");
+            names.add(nameType[0]);
+            types.add(nameType[1]);
+        }
+        RCTable table = new RCTable(names, types);
+        for (String row : rows) {
+            table.addRow(Arrays.asList(row.split(",")));
+        }
+        return table;
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+}